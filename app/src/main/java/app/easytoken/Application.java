@@ -17,25 +17,98 @@
 
 package app.easytoken;
 
-import android.util.Log;
+import android.app.Activity;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
 
-import androidx.annotation.NonNull;
-import androidx.camera.camera2.Camera2Config;
-import androidx.camera.core.CameraXConfig;
+import com.google.android.play.core.splitcompat.SplitCompat;
 
-public class Application extends android.app.Application implements CameraXConfig.Provider {
+import app.easytoken.core.PerfCounters;
+
+/* CameraX and ML Kit live in the on-demand qrscan module; see QRFeature */
+public class Application extends android.app.Application {
+
+	/*
+	 * True until some component other than MainActivity runs in this process.
+	 * The widget and the provider often start the process long before the user
+	 * opens the app, and then the time to MainActivity is process age, not
+	 * launch latency; see takeColdLaunch().
+	 */
+	private static volatile boolean sColdLaunch;
+
+	/* call from every entry point that isn't an activity */
+	public static void noteNonActivityStart() {
+		sColdLaunch = false;
+	}
+
+	/* true, once, if MainActivity is what started this process */
+	public static boolean takeColdLaunch() {
+		boolean ret = sColdLaunch;
+		sColdLaunch = false;
+		return ret;
+	}
+
+	private final ActivityLifecycleCallbacks mLaunchWatcher = new ActivityLifecycleCallbacks() {
+		@Override
+		public void onActivityCreated(Activity activity, Bundle b) {
+			if (!(activity instanceof MainActivity)) {
+				sColdLaunch = false;
+			}
+			unregisterActivityLifecycleCallbacks(this);
+		}
+
+		@Override
+		public void onActivityStarted(Activity activity) { }
+
+		@Override
+		public void onActivityResumed(Activity activity) { }
+
+		@Override
+		public void onActivityPaused(Activity activity) { }
+
+		@Override
+		public void onActivityStopped(Activity activity) { }
+
+		@Override
+		public void onActivitySaveInstanceState(Activity activity, Bundle b) { }
+
+		@Override
+		public void onActivityDestroyed(Activity activity) { }
+	};
 
 	@Override
-	public void onCreate() {
-		super.onCreate();
-		TokenInfo.init(getApplicationContext());
+	protected void attachBaseContext(Context base) {
+		super.attachBaseContext(base);
+		// make modules installed while we're running usable without a restart
+		SplitCompat.install(this);
 	}
 
-	@NonNull
 	@Override
-	public CameraXConfig getCameraXConfig() {
-		return CameraXConfig.Builder.fromConfig(Camera2Config.defaultConfig())
-				.setMinimumLoggingLevel(Log.ERROR).build();
+	public void onCreate() {
+		super.onCreate();
+		// mLaunchWatcher clears this if the first activity isn't MainActivity
+		sColdLaunch = true;
+		registerActivityLifecycleCallbacks(mLaunchWatcher);
+		if (BuildConfig.DEBUG) {
+			StrictPolicy.install();
+		}
+		Tracing.init(this);
+
+		Tracing.begin("Application.onCreate");
+		try {
+			Tracing.begin("TokenInfo.init");
+			try {
+				TokenInfo.init(getApplicationContext());
+			} finally {
+				Tracing.end();
+			}
+		} finally {
+			Tracing.end();
+		}
 
+		PerfCounters.recordTime(PerfCounters.COLD_START_APP,
+				(SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) * 1000000);
 	}
 }
@@ -0,0 +1,145 @@
+/*
+ * CountdownBar: smoothly animated time-left bar for a tokencode interval
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.drawable.AnimatedVectorDrawable;
+import android.graphics.drawable.Drawable;
+import android.provider.Settings;
+import android.util.AttributeSet;
+import android.view.View;
+
+/*
+ * Replaces a ProgressBar that was stepped from the UI thread once per second.
+ *
+ * The bar is an AnimatedVectorDrawable (R.drawable.countdown_bar_animated)
+ * whose only animator slides a filled rectangle left by its own width.  On a
+ * hardware canvas the platform runs vector drawable animators on the
+ * RenderThread, so the UI thread does no work while the bar moves.  The
+ * animator has a fixed duration, so the speed and starting point are set by
+ * the drawable's bounds instead: the rectangle's right edge starts at the
+ * fraction of the interval left and crosses the view at one width per
+ * interval.  Whatever lies left of the view is clipped.
+ *
+ * The only UI-thread work is one postDelayed() per interval, which restarts the
+ * drawable at the boundary after re-reading the clock, so the bar can't drift
+ * from the tokencodes.
+ */
+public class CountdownBar extends View {
+
+	/* android:duration of R.animator.countdown_shrink; the longest interval this can show */
+	private static final long SHRINK_MS = 60000;
+
+	private final AnimatedVectorDrawable mBar;
+	private long mIntervalMs;
+	private boolean mAttached;
+
+	private final Runnable mRestart = new Runnable() {
+		@Override
+		public void run() {
+			start();
+		}
+	};
+
+	public CountdownBar(Context context) {
+		this(context, null);
+	}
+
+	public CountdownBar(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		mBar = (AnimatedVectorDrawable)context.getDrawable(R.drawable.countdown_bar_animated);
+		mBar.setCallback(this);
+	}
+
+	/* seconds; restarts the countdown if it changed */
+	public void setInterval(int seconds) {
+		long ms = seconds * 1000L;
+		if (ms == mIntervalMs) {
+			return;
+		}
+		mIntervalMs = ms;
+		start();
+	}
+
+	@Override
+	protected boolean verifyDrawable(Drawable who) {
+		return who == mBar || super.verifyDrawable(who);
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		mAttached = true;
+		start();
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		mAttached = false;
+		stop();
+		super.onDetachedFromWindow();
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		start();
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		canvas.clipRect(0, 0, getWidth(), getHeight());
+		mBar.draw(canvas);
+	}
+
+	private void stop() {
+		mBar.stop();
+		removeCallbacks(mRestart);
+	}
+
+	private void start() {
+		stop();
+		int w = getWidth(), h = getHeight();
+		if (!mAttached || mIntervalMs <= 0 || w == 0) {
+			return;
+		}
+
+		long msLeft = mIntervalMs - System.currentTimeMillis() % mIntervalMs;
+		int right = (int)(w * msLeft / mIntervalMs);
+		postDelayed(mRestart, msLeft);
+
+		/* the platform stretches animator durations, RenderThread ones included, by the system scale */
+		float scale = Settings.Global.getFloat(getContext().getContentResolver(),
+				Settings.Global.ANIMATOR_DURATION_SCALE, 1.0f);
+		long shrinkMs = (long)(SHRINK_MS * scale);
+
+		mBar.reset();
+		if (!ValueAnimator.areAnimatorsEnabled() || shrinkMs < msLeft) {
+			// animations are off (or too fast to last the interval); jump once per interval instead
+			mBar.setBounds(0, 0, right, h);
+		} else {
+			// one view width per interval, ending at the left edge just as the interval does
+			int full = (int)(w * shrinkMs / mIntervalMs);
+			mBar.setBounds(right - full, 0, right, h);
+			mBar.start();
+		}
+		invalidate();
+	}
+}
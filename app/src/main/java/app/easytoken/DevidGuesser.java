@@ -0,0 +1,224 @@
+/*
+ * DevidGuesser: finds the bound device ID for a token among the known candidates
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import us.berkovitz.stoken.SecurIdToken;
+import us.berkovitz.stoken.TokenGUID;
+
+/*
+ * Candidates are our own device ID plus the known class GUIDs (Android, iPhone,
+ * Blackberry, ...).  They are ordered by a hit table kept in the preferences, so
+ * the ID that unlocked the most recent import is tried first.  Candidates that
+ * pass the cheap checkDevId() hash test are then verified with trial decrypts
+ * running in parallel, each on its own copy of the token, and the search stops at
+ * the first one that succeeds.
+ */
+public class DevidGuesser {
+
+	public static final String TAG = "EasyToken";
+
+	private static final String PREF_HITS = "devid_hits_";
+	private static final String PREF_LAST_HIT = "devid_last_hit_";
+
+	private static final int POOL_SIZE = Math.max(1, Math.min(4,
+			Runtime.getRuntime().availableProcessors()));
+	private static ExecutorService sPool;
+
+	private final SharedPreferences mPrefs;
+
+	public static class Match {
+		public String devid;
+
+		/* non-null if the match was verified by a trial decrypt; this copy is unlocked */
+		public SecurIdToken token;
+	}
+
+	private static class Candidate {
+		String id;
+		int order;
+		int hits;
+		long lastHit;
+	}
+
+	public DevidGuesser(Context context) {
+		mPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+	}
+
+	private static synchronized ExecutorService getPool() {
+		if (sPool == null) {
+			sPool = Executors.newFixedThreadPool(POOL_SIZE);
+		}
+		return sPool;
+	}
+
+	private List<Candidate> getCandidates() {
+		ArrayList<String> ids = new ArrayList<>();
+		ids.add(TokenInfo.getDeviceId());
+		for (TokenGUID g : TokenGUID.values()) {
+			ids.add(g.getGuid());
+		}
+
+		ArrayList<Candidate> ret = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i++) {
+			Candidate c = new Candidate();
+			c.id = ids.get(i);
+			c.order = i;
+			c.hits = mPrefs.getInt(PREF_HITS + c.id, 0);
+			c.lastHit = mPrefs.getLong(PREF_LAST_HIT + c.id, 0);
+			ret.add(c);
+		}
+
+		Collections.sort(ret, new Comparator<Candidate>() {
+			@Override
+			public int compare(Candidate a, Candidate b) {
+				if (a.lastHit != b.lastHit) {
+					return a.lastHit > b.lastHit ? -1 : 1;
+				}
+				if (a.hits != b.hits) {
+					return a.hits > b.hits ? -1 : 1;
+				}
+				return a.order - b.order;
+			}
+		});
+		return ret;
+	}
+
+	private boolean isCandidate(String id) {
+		if (id.equals(TokenInfo.getDeviceId())) {
+			return true;
+		}
+		for (TokenGUID g : TokenGUID.values()) {
+			if (id.equals(g.getGuid())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* call after a device ID has actually unlocked a token */
+	public void recordHit(String id) {
+		if (id == null || !isCandidate(id)) {
+			return;
+		}
+		mPrefs.edit()
+			.putInt(PREF_HITS + id, mPrefs.getInt(PREF_HITS + id, 0) + 1)
+			.putLong(PREF_LAST_HIT + id, System.currentTimeMillis())
+			.apply();
+	}
+
+	/*
+	 * TOKEN is the (still locked) token to test; DATA is the string it was parsed from,
+	 * used to create independent copies for the parallel trial decrypts.
+	 *
+	 * Returns null if no candidate matched.  Throws InterruptedException if the
+	 * calling thread is interrupted (i.e. the import was cancelled).
+	 */
+	public Match guess(SecurIdToken token, final String data) throws InterruptedException {
+		ArrayList<String> survivors = new ArrayList<>();
+		for (Candidate c : getCandidates()) {
+			// This checks the devid hash, but on v2 tokens it is only 15 bits and is
+			// prone to collisions...
+			if (token.checkDevId(c.id)) {
+				survivors.add(c.id);
+			}
+		}
+		if (survivors.isEmpty()) {
+			return null;
+		}
+
+		// Passworded tokens are trickier because they could pass checkDevId() with
+		// a hash collision, and we can't check the other hash until both the devid
+		// AND password are correct.  Go with the most likely candidate.
+		if (token.passRequired()) {
+			Match m = new Match();
+			m.devid = survivors.get(0);
+			return m;
+		}
+
+		// ...so, for passwordless tokens, we can perform a test decrypt to rule out
+		// that possibility.
+		final AtomicBoolean found = new AtomicBoolean(false);
+		CompletionService<Match> cs = new ExecutorCompletionService<>(getPool());
+		ArrayList<Future<Match>> futures = new ArrayList<>();
+
+		for (final String id : survivors) {
+			futures.add(cs.submit(new Callable<Match>() {
+				@Override
+				public Match call() throws Exception {
+					if (found.get()) {
+						return null;
+					}
+					Tracing.begin("DevidGuesser.trial");
+					SecurIdToken t;
+					try {
+						t = SecurIdToken.Companion.importString(data, false);
+						try {
+							t.decryptSeed("", id);
+						} catch (Exception e) {
+							return null;
+						}
+					} finally {
+						Tracing.end();
+					}
+					found.set(true);
+
+					Match m = new Match();
+					m.devid = id;
+					m.token = t;
+					return m;
+				}
+			}));
+		}
+
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					Match m = cs.take().get();
+					if (m != null) {
+						return m;
+					}
+				} catch (ExecutionException ignored) {
+				}
+			}
+			return null;
+		} finally {
+			// stop anything that hasn't started yet
+			found.set(true);
+			for (Future<Match> f : futures) {
+				f.cancel(false);
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * DiagnosticsFragment: live performance counters, for bug reports
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import java.util.Map;
+
+import android.app.Fragment;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import app.easytoken.core.PerfCounters;
+import app.easytoken.core.ViolationReport;
+
+/*
+ * The same numbers are available without the UI through
+ *   adb shell dumpsys activity provider app.easytoken/.TokencodeProvider
+ * (or .../.TokencodeWidgetService while a widget is active).
+ */
+public class DiagnosticsFragment extends Fragment {
+
+	public static final String TAG = "EasyToken";
+
+	private static final int REFRESH_MS = 1000;
+
+	private static final String[][] ART_STATS = {
+		{ "gc.count", "art.gc.gc-count" },
+		{ "gc.time_ms", "art.gc.gc-time" },
+		{ "gc.blocking_count", "art.gc.blocking-gc-count" },
+		{ "gc.bytes_allocated", "art.gc.bytes-allocated" },
+		{ "gc.bytes_freed", "art.gc.bytes-freed" },
+	};
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final Runnable mRefresh = new Runnable() {
+		@Override
+		public void run() {
+			refresh();
+			mHandler.postDelayed(this, REFRESH_MS);
+		}
+	};
+
+	private TextView mCounters;
+
+	/* copies the runtime's GC statistics into PerfCounters gauges */
+	public static void sampleRuntimeStats() {
+		for (String[] stat : ART_STATS) {
+			String v = Debug.getRuntimeStat(stat[1]);
+			if (v != null) {
+				try {
+					PerfCounters.set(stat[0], Long.parseLong(v));
+				} catch (NumberFormatException e) {
+					// not a number on this runtime
+				}
+			}
+		}
+		Runtime rt = Runtime.getRuntime();
+		PerfCounters.set("heap.used_bytes", rt.totalMemory() - rt.freeMemory());
+		PerfCounters.set("heap.max_bytes", rt.maxMemory());
+	}
+
+	@Override
+	public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle b) {
+		View v = inflater.inflate(R.layout.fragment_diagnostics, container, false);
+		mCounters = (TextView)v.findViewById(R.id.counters);
+
+		Button button = (Button)v.findViewById(R.id.export_button);
+		button.setOnClickListener(new OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				export();
+			}
+		});
+
+		button = (Button)v.findViewById(R.id.reset_button);
+		button.setOnClickListener(new OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				PerfCounters.reset();
+				ViolationReport.reset();
+				refresh();
+			}
+		});
+		return v;
+	}
+
+	@Override
+	public void onResume() {
+		super.onResume();
+		mHandler.post(mRefresh);
+	}
+
+	@Override
+	public void onPause() {
+		mHandler.removeCallbacks(mRefresh);
+		super.onPause();
+	}
+
+	private void refresh() {
+		sampleRuntimeStats();
+
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Long> e : PerfCounters.snapshot().entrySet()) {
+			sb.append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+		}
+		mCounters.setText(sb);
+	}
+
+	private void export() {
+		sampleRuntimeStats();
+
+		Intent i = new Intent(Intent.ACTION_SEND);
+		i.setType("application/json");
+		i.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.diagnostics_subject));
+		String json = PerfCounters.toJson();
+		if (ViolationReport.isEnabled()) {
+			// debug builds only (see StrictPolicy)
+			json = "{\n\"counters\": " + json + ",\n\"violations\": " + ViolationReport.toJson() + "}\n";
+		}
+		i.putExtra(Intent.EXTRA_TEXT, json);
+		startActivity(Intent.createChooser(i, getString(R.string.diagnostics_export)));
+	}
+}
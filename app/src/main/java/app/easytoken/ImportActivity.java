@@ -19,11 +19,15 @@ package app.easytoken;
 
 import android.app.AlertDialog;
 import android.app.Fragment;
+import android.app.FragmentManager;
 import android.app.FragmentTransaction;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
-import android.util.Log;
+import android.widget.Toast;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import androidx.activity.result.ActivityResultCallback;
 import androidx.activity.result.ActivityResultLauncher;
@@ -31,14 +35,14 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 
 import kotlin.Unit;
-import us.berkovitz.stoken.SecurIdToken;
-import us.berkovitz.stoken.TokenGUID;
 
 public class ImportActivity extends AppCompatActivity
 		implements ImportMethodFragment.OnImportMethodSelectedListener,
 		           ImportManualEntryFragment.OnManualEntryDoneListener,
 		           ImportUnlockFragment.OnUnlockDoneListener,
-		           ImportConfirmFragment.OnConfirmDoneListener {
+		           ImportConfirmFragment.OnConfirmDoneListener,
+		           ImportProgressFragment.OnImportCancelListener,
+		           ImportSession.OnImportProgressListener {
 
 	public static final String TAG = "EasyToken";
 
@@ -53,23 +57,44 @@ public class ImportActivity extends AppCompatActivity
 	private static final int STEP_UNLOCK_TOKEN = 6;
 	private static final int STEP_CONFIRM_IMPORT = 7;
 	private static final int STEP_DONE = 8;
+	private static final int STEP_SAVE_TOKEN = 9;
+
+	/* async trace slice names, indexed by STEP_* */
+	private static final String[] STEP_TRACE_NAMES = {
+		null, "import:method", "import:uri_instructions", "import:import_token",
+		"import:manual_entry", "import:error", "import:unlock_token",
+		"import:confirm_import", "import:done", "import:save_token"
+	};
 
 	private AlertDialog mDialog;
+	private boolean mResumed;
+	private int mTracedStep = STEP_NONE;
+
+	/* parsed token + worker thread; survives configuration changes but not process death */
+	private ImportSession mSession;
+
+	/* our wait for the QR module download; cancelled in onDestroy and re-attached after */
+	private QRFeature.Request mQRInstall;
 
 	/* these get saved if the Activity is destroyed and re-created */
 	private int mStep;
 	private String mInputMethod;
 	private String mUri;
+	private ArrayList<String> mSources;
 	private String mGuessedDevID = "";
 	private String mErrorType;
 	private String mErrorData;
+	/* "qr", "qr_batch" or "qr_image" while the QR module is being installed for it */
+	private String mPendingQR;
 
 	private static final String STATE_STEP = PFX + "step";
 	private static final String STATE_INPUT_METHOD = PFX + "input_method";
 	private static final String STATE_URI = PFX + "uri";
+	private static final String STATE_SOURCES = PFX + "sources";
 	private static final String STATE_GUESSED_DEV_ID = PFX + "guessed_dev_id";
 	private static final String STATE_ERROR_TYPE = PFX + "error_type";
 	private static final String STATE_ERROR_DATA = PFX + "error_data";
+	private static final String STATE_PENDING_QR = PFX + "pending_qr";
 
 	ActivityResultLauncher<Unit> mQrScanStartResult = registerForActivityResult(new QRResult(),
 			new ActivityResultCallback<String>() {
@@ -81,12 +106,69 @@ public class ImportActivity extends AppCompatActivity
 				}
 			});
 
+	ActivityResultLauncher<Unit> mQrBatchScanResult = registerForActivityResult(new QRBatchResult(),
+			new ActivityResultCallback<ArrayList<String>>() {
+				@Override
+				public void onActivityResult(ArrayList<String> result) {
+					if (result != null && !result.isEmpty()) {
+						tryImportBatch(result);
+					}
+				}
+			});
+
+	ActivityResultLauncher<Uri> mQrImageDecodeResult = registerForActivityResult(new QRImageResult(),
+			new ActivityResultCallback<String>() {
+				@Override
+				public void onActivityResult(String result) {
+					if (result != null) {
+						tryImport(result);
+					}
+				}
+			});
+
+	ActivityResultLauncher<String[]> mQrImageSelectResult = registerForActivityResult(
+			new ActivityResultContracts.OpenDocument(), new ActivityResultCallback<Uri>() {
+				@Override
+				public void onActivityResult(Uri result) {
+					if (result != null) {
+						mQrImageDecodeResult.launch(result);
+					}
+				}
+			});
+
 	ActivityResultLauncher<String[]> mFileSelectResult = registerForActivityResult(
 			new ActivityResultContracts.OpenDocument(), new ActivityResultCallback<Uri>() {
 				@Override
 				public void onActivityResult(Uri result) {
 					if(result != null){
-						tryImport(Misc.readStringFromUri(getBaseContext(), result));
+						// the file is read on the ImportSession worker thread
+						tryImport(result.toString());
+					}
+				}
+			});
+
+	ActivityResultLauncher<String[]> mMultiFileSelectResult = registerForActivityResult(
+			new ActivityResultContracts.OpenMultipleDocuments(), new ActivityResultCallback<List<Uri>>() {
+				@Override
+				public void onActivityResult(List<Uri> result) {
+					if (result != null && !result.isEmpty()) {
+						ArrayList<String> sources = new ArrayList<>();
+						for (Uri uri : result) {
+							sources.add(uri.toString());
+						}
+						tryImportBatch(sources);
+					}
+				}
+			});
+
+	ActivityResultLauncher<Uri> mFolderSelectResult = registerForActivityResult(
+			new ActivityResultContracts.OpenDocumentTree(), new ActivityResultCallback<Uri>() {
+				@Override
+				public void onActivityResult(Uri result) {
+					if (result != null) {
+						ArrayList<String> sources = new ArrayList<>();
+						sources.add(result.toString());
+						tryImportBatch(sources);
 					}
 				}
 			});
@@ -95,13 +177,32 @@ public class ImportActivity extends AppCompatActivity
 	public void onCreate(Bundle b) {
 		super.onCreate(b);
 
+		mSession = (ImportSession)getLastCustomNonConfigurationInstance();
+
 		if (b != null) {
 			mStep = b.getInt(STATE_STEP);
 			mInputMethod = b.getString(STATE_INPUT_METHOD);
 			mUri = b.getString(STATE_URI);
+			mSources = b.getStringArrayList(STATE_SOURCES);
 			mGuessedDevID = b.getString(STATE_GUESSED_DEV_ID);
 			mErrorType = b.getString(STATE_ERROR_TYPE);
 			mErrorData = b.getString(STATE_ERROR_DATA);
+			mPendingQR = b.getString(STATE_PENDING_QR);
+			if (mPendingQR != null) {
+				// the download outlives us across a rotation; wait for it again
+				installQR(mPendingQR);
+			}
+
+			if (mSession == null && mSources != null &&
+				(mStep == STEP_UNLOCK_TOKEN || mStep == STEP_CONFIRM_IMPORT || mStep == STEP_SAVE_TOKEN)) {
+				// unlocked batches aren't saved in the Bundle; start over
+				getFragmentManager().popBackStack(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+				mStep = STEP_IMPORT_TOKEN;
+				handleImportStep();
+			} else if (mSession == null && isWorking()) {
+				// the process was killed while a step was running
+				restartStep();
+			}
 		} else {
 			Intent i = this.getIntent();
 			if (i != null) {
@@ -115,8 +216,22 @@ public class ImportActivity extends AppCompatActivity
 		}
 	}
 
+	@Override
+	protected void onResume() {
+		super.onResume();
+		mResumed = true;
+		if (mSession != null) {
+			// this delivers any result that arrived while we were paused
+			mSession.setListener(this);
+		}
+	}
+
 	@Override
 	protected void onPause() {
+		mResumed = false;
+		if (mSession != null) {
+			mSession.setListener(null);
+		}
 		if (mDialog != null) {
 			mDialog.dismiss();
 			mDialog = null;
@@ -124,15 +239,46 @@ public class ImportActivity extends AppCompatActivity
 		super.onPause();
 	}
 
+	@Override
+	protected void onDestroy() {
+		traceStep(STEP_NONE);
+		if (mQRInstall != null) {
+			// don't let the install's listener keep this instance alive, or call back into it
+			mQRInstall.cancel();
+			mQRInstall = null;
+		}
+		if (isFinishing() && mSession != null) {
+			mSession.close();
+			mSession = null;
+		}
+		super.onDestroy();
+	}
+
+	@Override
+	public Object onRetainCustomNonConfigurationInstance() {
+		return mSession;
+	}
+
 	@Override
 	protected void onSaveInstanceState(Bundle b) {
 		super.onSaveInstanceState(b);
 		b.putInt(STATE_STEP, mStep);
 		b.putString(STATE_INPUT_METHOD, mInputMethod);
 		b.putString(STATE_URI, mUri);
+		b.putStringArrayList(STATE_SOURCES, mSources);
 		b.putString(STATE_GUESSED_DEV_ID, mGuessedDevID);
 		b.putString(STATE_ERROR_TYPE, mErrorType);
 		b.putString(STATE_ERROR_DATA, mErrorData);
+		b.putString(STATE_PENDING_QR, mPendingQR);
+	}
+
+	@Override
+	public void onBackPressed() {
+		if (isWorking()) {
+			onImportCancel();
+		} else {
+			super.onBackPressed();
+		}
 	}
 
 	private void showFrag(Fragment f, boolean animate) {
@@ -145,109 +291,93 @@ public class ImportActivity extends AppCompatActivity
 		ft.replace(android.R.id.content, f).commit();
 	}
 
-	private void showError(String errCode, String errData) {
-		mStep = STEP_ERROR;
-		mErrorType = errCode;
-		mErrorData = errData;
-		handleImportStep();
+	/*
+	 * The progress screen goes on the back stack, so cancelling (or an unlock error)
+	 * returns to whichever screen started the work.
+	 */
+	private void showProgress() {
+		getFragmentManager().beginTransaction()
+			.setCustomAnimations(R.animator.fade_in, R.animator.fade_out,
+					R.animator.fade_in, R.animator.fade_out)
+			.replace(android.R.id.content, new ImportProgressFragment())
+			.addToBackStack(null)
+			.commit();
 	}
 
-	private SecurIdToken importToken(String data, boolean decrypt) {
-		Uri uri = Uri.parse(data);
-		String path = uri.getPath();
-		boolean isFile = false;
-
-		if (path != null &&
-			("file".equals(uri.getScheme()) || "content".equals(uri.getScheme()))) {
-			/*
-			 * Arguably we shouldn't take file:// URIs from QR codes,
-			 * and maybe we should be more careful about what we accept
-			 * from other apps too
-			 */
-			isFile = true;
-			data = Misc.readStringFromUri(this, uri);
-			if (data == null) {
-				showError(ImportInstructionsFragment.INST_FILE_ERROR, path);
-				return null;
-			}
+	private void hideProgress() {
+		FragmentManager fm = getFragmentManager();
+		if (fm.getBackStackEntryCount() > 0) {
+			fm.popBackStackImmediate();
 		}
+	}
 
-		SecurIdToken res;
-		try {
-			Log.d(TAG, "Loading token");
-			res = SecurIdToken.Companion.importString(data, false);
-		} catch (Exception exc) {
-			Log.e(TAG, "error loading token", exc);
-			showError(ImportInstructionsFragment.INST_BAD_TOKEN, isFile ? "" : data);
-			return null;
-		}
+	private boolean isWorking() {
+		return getFragmentManager().findFragmentById(android.R.id.content)
+				instanceof ImportProgressFragment;
+	}
 
-		if(decrypt){
-			try {
-				res.decryptSeed("", "");
-			} catch (Exception exc){
-				showError(ImportInstructionsFragment.INST_BAD_TOKEN, isFile ? "" : data);
-				return null;
-			}
+	private void restartStep() {
+		if (mStep == STEP_IMPORT_TOKEN) {
+			getSession().startImport();
+		} else if (mStep == STEP_SAVE_TOKEN) {
+			getSession().startSave();
+		} else {
+			// back to the unlock screen; the user can simply resubmit
+			getFragmentManager().popBackStack();
 		}
-
-		return res;
 	}
 
-	private boolean guessDevID(SecurIdToken token, String id) {
-		// This checks the devid hash, but on v2 tokens it is only 15 bits and is
-		// prone to collisions...
-		if (!token.checkDevId(id)) {
-			return false;
-		}
+	private void showError(String errCode, String errData) {
+		mStep = STEP_ERROR;
+		mErrorType = errCode;
+		mErrorData = errData;
+		handleImportStep();
+	}
 
-		// ...so, for passwordless v2 tokens, we can perform a test decrypt to
-		// rule out that possibility.
-		// Passworded v2 tokens are trickier because they could pass
-		// lib.checkDevId() with a hash collision, and we can't check the other
-		// hash until both the devid AND password are correct.
-		if (token.passRequired()) {
-			mGuessedDevID = id;
-			return true;
-		} else {
-			try {
-				token.decryptSeed("", id);
-				mGuessedDevID = id;
-				return true;
-			} catch (Exception ignored) {}
+	/*
+	 * Returns the current import session, re-creating it from mUri if the process
+	 * was killed while an import was in progress.
+	 */
+	private ImportSession getSession() {
+		if (mSession == null) {
+			if (mSources != null) {
+				mSession = new ImportSession(this, mSources, false);
+			} else {
+				// mUri was re-encoded after the token was unlocked
+				boolean unlocked = mStep == STEP_CONFIRM_IMPORT || mStep == STEP_SAVE_TOKEN;
+				mSession = new ImportSession(this, mUri, unlocked);
+			}
+			if (mResumed) {
+				mSession.setListener(this);
+			}
 		}
-		return false;
+		return mSession;
 	}
 
-	private boolean manualDevID(SecurIdToken token) {
-		if (!token.devIdRequired()) {
-			// token doesn't require a device ID at all
-			return false;
+	/* closes the slice for the previous step and opens one for STEP */
+	private void traceStep(int step) {
+		if (step == mTracedStep) {
+			return;
 		}
-
-		if (guessDevID(token, TokenInfo.getDeviceId())) {
-			// guessed correctly (probably) - save it
-			return false;
+		if (mTracedStep != STEP_NONE) {
+			Tracing.endAsync(STEP_TRACE_NAMES[mTracedStep], Tracing.COOKIE_IMPORT);
 		}
-
-		for (TokenGUID g : TokenGUID.values()) {
-			// Try known class GUIDs for Android, iPhone, Blackberry, ...
-			if (guessDevID(token, g.getGuid())) {
-				return false;
-			}
+		mTracedStep = step;
+		if (step != STEP_NONE) {
+			Tracing.beginAsync(STEP_TRACE_NAMES[step], Tracing.COOKIE_IMPORT);
 		}
-
-		// no luck, revert back to manual entry
-		mGuessedDevID = "";
-		return true;
 	}
 
-	private void writeNewToken(SecurIdToken token) {
-		TokenInfo info = new TokenInfo(token, null);
-		info.save();
+	private void handleImportStep() {
+		Tracing.begin("ImportActivity.handleImportStep");
+		try {
+			doImportStep();
+		} finally {
+			Tracing.end();
+		}
 	}
 
-	private void handleImportStep() {
+	private void doImportStep() {
 		Fragment f;
 		boolean animate = true;
 
@@ -256,6 +386,7 @@ public class ImportActivity extends AppCompatActivity
 			mStep = (mUri == null) ? STEP_METHOD : STEP_IMPORT_TOKEN;
 			animate = false;
 		}
+		traceStep(mStep);
 
 		if (mStep == STEP_METHOD) {
 			showFrag(new ImportMethodFragment(), animate);
@@ -270,24 +401,12 @@ public class ImportActivity extends AppCompatActivity
 		} else if (mStep == STEP_MANUAL_ENTRY) {
 			showFrag(new ImportManualEntryFragment(), animate);
 		} else if (mStep == STEP_IMPORT_TOKEN) {
-			SecurIdToken token = importToken(mUri, false);
-			if (token == null) {
-				/* mStep has already been advanced to an error state */
-				return;
+			if (mSession != null) {
+				mSession.close();
+				mSession = null;
 			}
-			if (manualDevID(token) || token.passRequired()) {
-				mStep = STEP_UNLOCK_TOKEN;
-			} else {
-				try{
-					token.decryptSeed("", mGuessedDevID);
-				} catch (Exception e){
-					showError(ImportInstructionsFragment.INST_BAD_TOKEN, mUri);
-					return;
-				}
-				mUri = token.encodeToken("", "", 2);
-				mStep = STEP_CONFIRM_IMPORT;
-			}
-			handleImportStep();
+			showProgress();
+			getSession().startImport();
 		} else if (mStep == STEP_ERROR) {
 			Bundle b = new Bundle();
 			b.putString(ImportInstructionsFragment.ARG_INST_TYPE, mErrorType);
@@ -297,15 +416,11 @@ public class ImportActivity extends AppCompatActivity
 			f.setArguments(b);
 			showFrag(f, animate);
 		} else if (mStep == STEP_UNLOCK_TOKEN) {
-			SecurIdToken token = importToken(mUri, false);
-			if (token == null) {
-				/* mStep has already been advanced to an error state */
-				return;
-			}
+			ImportSession session = getSession();
 			Bundle b = new Bundle();
 			b.putString(ImportUnlockFragment.ARG_DEFAULT_DEVID, mGuessedDevID);
-			b.putBoolean(ImportUnlockFragment.ARG_REQUEST_PASS, token.passRequired());
-			b.putBoolean(ImportUnlockFragment.ARG_REQUEST_DEVID, token.devIdRequired());
+			b.putBoolean(ImportUnlockFragment.ARG_REQUEST_PASS, session.isPassRequired());
+			b.putBoolean(ImportUnlockFragment.ARG_REQUEST_DEVID, session.isDevIdRequired());
 
 			/*
 			 * NOTE: The PIN is not captured here.  isPINRequired() may return false if we're
@@ -319,19 +434,24 @@ public class ImportActivity extends AppCompatActivity
 			showFrag(f, animate);
 
 		} else if (mStep == STEP_CONFIRM_IMPORT) {
-			SecurIdToken token = importToken(mUri, true);
-			if (token == null) {
-				/* mStep has already been advanced to an error state */
-				return;
-			}
+			ImportSession session = getSession();
 
 			Bundle b = new Bundle();
-			b.putString(ImportConfirmFragment.ARG_NEW_TOKEN, mUri);
+			if (session.isBatch()) {
+				b.putStringArrayList(ImportConfirmFragment.ARG_NEW_SN_LIST, session.getSerials());
+				b.putInt(ImportConfirmFragment.ARG_SKIPPED, session.getSkippedCount());
+			} else {
+				b.putString(ImportConfirmFragment.ARG_NEW_SN, session.getSerial());
+				b.putLong(ImportConfirmFragment.ARG_NEW_EXP_DATE, session.getExpDate());
+			}
 
 			f = new ImportConfirmFragment();
 			f.setArguments(b);
 			showFrag(f, animate);
 
+		} else if (mStep == STEP_SAVE_TOKEN) {
+			showProgress();
+			getSession().startSave();
 		} else if (mStep == STEP_DONE) {
 			finish();
 		}
@@ -347,11 +467,24 @@ public class ImportActivity extends AppCompatActivity
 				handleImportStep();
 				break;
 			case "qr":
-				mQrScanStartResult.launch(Unit.INSTANCE);
+			case "qr_batch":
+				if (!QRFeature.isInstalled(this)) {
+					Toast.makeText(this, R.string.qr_installing, Toast.LENGTH_SHORT).show();
+				}
+				installQR(method);
+				break;
+			case "qr_image":
+				installQR(method);
 				break;
 			case "browse":
 				mFileSelectResult.launch(new String[]{"*/*"});
 				break;
+			case "browse_multi":
+				mMultiFileSelectResult.launch(new String[]{"*/*"});
+				break;
+			case "folder":
+				mFolderSelectResult.launch(null);
+				break;
 			case "manual":
 				mStep = STEP_MANUAL_ENTRY;
 				handleImportStep();
@@ -359,9 +492,56 @@ public class ImportActivity extends AppCompatActivity
 		}
 	}
 
+	/*
+	 * The scanner is an on-demand module, so it may have to be downloaded first.
+	 * For "qr_image" the module is installed before the picker is shown, so the
+	 * decode can start right away.
+	 */
+	private void installQR(final String method) {
+		mPendingQR = method;
+		mQRInstall = QRFeature.install(this, new QRFeature.OnQRFeatureListener() {
+			@Override
+			public void onQRFeatureReady() {
+				mPendingQR = null;
+				mQRInstall = null;
+				if (isFinishing() || isDestroyed()) {
+					return;
+				}
+				switch (method) {
+					case "qr":
+						mQrScanStartResult.launch(Unit.INSTANCE);
+						break;
+					case "qr_batch":
+						mQrBatchScanResult.launch(Unit.INSTANCE);
+						break;
+					case "qr_image":
+						mQrImageSelectResult.launch(new String[]{"image/*", "application/pdf"});
+						break;
+				}
+			}
+
+			@Override
+			public void onQRFeatureFailed() {
+				mPendingQR = null;
+				mQRInstall = null;
+				if (!isFinishing() && !isDestroyed()) {
+					Toast.makeText(ImportActivity.this, R.string.qr_install_failed, Toast.LENGTH_LONG).show();
+				}
+			}
+		});
+	}
+
 	private void tryImport(String s) {
 		mStep = STEP_IMPORT_TOKEN;
 		mUri = s;
+		mSources = null;
+		handleImportStep();
+	}
+
+	private void tryImportBatch(ArrayList<String> sources) {
+		mStep = STEP_IMPORT_TOKEN;
+		mUri = null;
+		mSources = sources;
 		handleImportStep();
 	}
 
@@ -383,42 +563,76 @@ public class ImportActivity extends AppCompatActivity
 
 	@Override
 	public void onUnlockDone(String pass, String devid, String pin) {
-		SecurIdToken token = importToken(mUri, false);
-		if (token == null) {
-			/* mStep has already been advanced to an error state */
-			return;
+		showProgress();
+		getSession().startUnlock(pass, devid);
+	}
+
+	@Override
+	public void onConfirmDone(boolean accepted) {
+		mStep = accepted ? STEP_SAVE_TOKEN : STEP_DONE;
+		handleImportStep();
+	}
+
+	@Override
+	public void onImportCancel() {
+		if (mSession != null) {
+			mSession.cancel();
 		}
 
-		try {
-			token.decryptSeed(pass, devid);
-		} catch (Exception e){
-			int resId = R.string.general_failure;
-
-			if (token.devIdRequired() && !token.checkDevId(devid)) {
-				resId = R.string.devid_bad;
-			} else if (token.passRequired()) {
-				resId = R.string.pass_bad;
-			}
-			mDialog = errorDialog(R.string.unable_to_process_token, resId);
+		if (mStep == STEP_IMPORT_TOKEN && mInputMethod == null) {
+			// launched directly from an email/browser link; there is no previous screen
+			mStep = STEP_DONE;
+			handleImportStep();
 			return;
 		}
+		if (mStep == STEP_IMPORT_TOKEN) {
+			mStep = "manual".equals(mInputMethod) ? STEP_MANUAL_ENTRY : STEP_METHOD;
+		} else if (mStep == STEP_SAVE_TOKEN) {
+			mStep = STEP_CONFIRM_IMPORT;
+		}
+		hideProgress();
+	}
 
-		mUri = token.encodeToken("", "", 2);
-		mStep = STEP_CONFIRM_IMPORT;
-		handleImportStep();
+	@Override
+	public void onImportProgress(int msgRes) {
+		Fragment f = getFragmentManager().findFragmentById(android.R.id.content);
+		if (f instanceof ImportProgressFragment) {
+			((ImportProgressFragment)f).setMessage(msgRes);
+		}
 	}
 
 	@Override
-	public void onConfirmDone(boolean accepted) {
-		if (accepted) {
-			SecurIdToken lib = importToken(mUri, true);
-			if (lib == null) {
-				/* mStep has already been advanced to an error state */
-				return;
-			}
-			writeNewToken(lib);
+	public void onImportResult(int result) {
+		hideProgress();
+
+		switch (result) {
+			case ImportSession.RESULT_NEED_UNLOCK:
+				mGuessedDevID = mSession.getGuessedDevID();
+				mStep = STEP_UNLOCK_TOKEN;
+				handleImportStep();
+				break;
+			case ImportSession.RESULT_UNLOCKED:
+				if (!mSession.isBatch()) {
+					mUri = mSession.getEncoded();
+				} else if (mSources == null) {
+					// a single file held several tokens; restart from it if we get killed
+					mSources = new ArrayList<>();
+					mSources.add(mUri);
+				}
+				mStep = STEP_CONFIRM_IMPORT;
+				handleImportStep();
+				break;
+			case ImportSession.RESULT_SAVED:
+				mStep = STEP_DONE;
+				handleImportStep();
+				break;
+			case ImportSession.RESULT_LOAD_ERROR:
+				showError(mSession.getErrorType(), mSession.getErrorData());
+				break;
+			case ImportSession.RESULT_UNLOCK_ERROR:
+				// hideProgress() went back to the unlock screen
+				mDialog = errorDialog(R.string.unable_to_process_token, mSession.getUnlockErrorRes());
+				break;
 		}
-		mStep = STEP_DONE;
-		handleImportStep();
 	}
 }
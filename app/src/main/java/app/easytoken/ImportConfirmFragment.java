@@ -18,10 +18,12 @@
 package app.easytoken;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
 
 import android.app.Activity;
 import android.app.Fragment;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
@@ -30,13 +32,15 @@ import android.widget.Button;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
-import us.berkovitz.stoken.SecurIdToken;
-
 public class ImportConfirmFragment extends Fragment {
 
 	public static final String PFX = "app.easytoken.";
-	public static final String ARG_OLD_TOKEN = PFX + "old_token";
-	public static final String ARG_NEW_TOKEN = PFX + "new_token";
+	public static final String ARG_OLD_SN = PFX + "old_sn";
+	public static final String ARG_OLD_EXP_DATE = PFX + "old_exp_date";
+	public static final String ARG_NEW_SN = PFX + "new_sn";
+	public static final String ARG_NEW_EXP_DATE = PFX + "new_exp_date";
+	public static final String ARG_NEW_SN_LIST = PFX + "new_sn_list";
+	public static final String ARG_SKIPPED = PFX + "skipped";
 
 	private OnConfirmDoneListener mListener;
 
@@ -44,18 +48,16 @@ public class ImportConfirmFragment extends Fragment {
 		public void onConfirmDone(boolean accepted);
 	}
 
-	private void populateTokenInfo(View v, String s, int labelRes, int snRes, int expRes) {
-		SecurIdToken token;
+	/* the caller has already decrypted the token; only its metadata is passed in */
+	private void populateTokenInfo(View v, String serial, long expDate, int labelRes, int snRes, int expRes) {
 		String sn = "ERROR", exp = "ERROR";
 
-		try {
-			token = SecurIdToken.Companion.importString(s, false);
-			token.decryptSeed("", "");
-			sn = this.getString(labelRes) + " " + token.getSerial();
+		if (serial != null) {
+			sn = this.getString(labelRes) + " " + serial;
 
 			DateFormat df = DateFormat.getDateInstance(DateFormat.SHORT);
-			exp = this.getString(R.string.exp_date) + " " + df.format(token.unixExpDate() * 1000);
-		} catch (Exception ignored){ }
+			exp = this.getString(R.string.exp_date) + " " + df.format(expDate);
+		}
 
 		TextView tv = (TextView)v.findViewById(snRes);
 		tv.setText(sn);
@@ -73,18 +75,38 @@ public class ImportConfirmFragment extends Fragment {
 
 		Bundle args = getArguments();
 
-		String oldToken = args.getString(ARG_OLD_TOKEN);
-		String newToken = args.getString(ARG_NEW_TOKEN);
+		String oldSerial = args.getString(ARG_OLD_SN);
+		String newSerial = args.getString(ARG_NEW_SN);
+		long newExpDate = args.getLong(ARG_NEW_EXP_DATE);
 
-		if (oldToken != null) {
-			populateTokenInfo(v, oldToken, R.string.current_token,
+		ArrayList<String> serials = args.getStringArrayList(ARG_NEW_SN_LIST);
+
+		if (serials != null) {
+			/* batch import: list the serial numbers only */
+			int skipped = args.getInt(ARG_SKIPPED);
+			confirmView.setText(getResources().getQuantityString(R.plurals.import_batch_confirm,
+					serials.size(), serials.size()));
+			oldContainer.setVisibility(View.GONE);
+
+			TextView tv = (TextView)v.findViewById(R.id.new_token_sn);
+			tv.setText(TextUtils.join("\n", serials));
+
+			tv = (TextView)v.findViewById(R.id.new_token_exp_date);
+			if (skipped > 0) {
+				tv.setText(getResources().getQuantityString(R.plurals.import_batch_skipped,
+						skipped, skipped));
+			} else {
+				tv.setVisibility(View.GONE);
+			}
+		} else if (oldSerial != null) {
+			populateTokenInfo(v, oldSerial, args.getLong(ARG_OLD_EXP_DATE), R.string.current_token,
 					R.id.old_token_sn, R.id.old_token_exp_date);
-			populateTokenInfo(v, newToken, R.string.replacement_token,
+			populateTokenInfo(v, newSerial, newExpDate, R.string.replacement_token,
 					R.id.new_token_sn, R.id.new_token_exp_date);
 			oldContainer.setVisibility(View.VISIBLE);
 			confirmView.setText(R.string.overwrite_confirm);
 		} else {
-			populateTokenInfo(v, newToken, R.string.token_sn,
+			populateTokenInfo(v, newSerial, newExpDate, R.string.token_sn,
 					R.id.new_token_sn, R.id.new_token_exp_date);
 			oldContainer.setVisibility(View.GONE);
 			confirmView.setText(R.string.import_confirm);
@@ -17,14 +17,8 @@
 
 package app.easytoken;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import android.app.Fragment;
 import android.os.Bundle;
-import android.text.Html;
-import android.text.TextUtils;
-import android.text.method.LinkMovementMethod;
 import android.text.method.ScrollingMovementMethod;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -45,34 +39,6 @@ public class ImportInstructionsFragment extends Fragment {
 	public static final String INST_BAD_TOKEN = "bad_token";
 	public static final String INST_FILE_ERROR = "file_error";
 
-	private void setHtml(TextView tv, int resId) {
-
-		String in = getString(resId);
-		in = TextUtils.htmlEncode(in).replace("\n", "<br>");
-
-		// match markdown-formatted links: [link text](http://foo.bar.com)
-		// replace with: <a href="http://foo.bar.com">link text</a>
-		StringBuilder out = new StringBuilder();
-		Pattern p = Pattern.compile("\\[(.+?)\\]\\((\\S+?)\\)");
-		Matcher m;
-
-		while (true) {
-			m = p.matcher(in);
-			if (!m.find()) {
-				break;
-			}
-			out.append(in.substring(0, m.start()));
-			out.append("<a href=\"" + m.group(2) + "\">");
-			out.append(m.group(1));
-			out.append("</a>");
-			in = in.substring(m.end());
-		}
-
-		out.append(in);
-		tv.setText(Html.fromHtml(out.toString()));
-		tv.setMovementMethod(LinkMovementMethod.getInstance());
-	}
-
 	@Override
 	public View onCreateView(LayoutInflater inflater, ViewGroup container,
 			Bundle savedInstanceState) {
@@ -84,20 +50,20 @@ public class ImportInstructionsFragment extends Fragment {
 
 		String method = b.getString(ARG_INST_TYPE);
 		if (method.equals(INST_URI_HELP)) {
-			setHtml(tv, R.string.import_uri_help);
+			MarkupRenderer.setText(tv, R.string.import_uri_help);
 
 			extv.setHorizontallyScrolling(true);
 			extv.setMovementMethod(new ScrollingMovementMethod());
-			setHtml(extv, R.string.import_uri_examples);
+			MarkupRenderer.setText(extv, R.string.import_uri_examples);
 		} else if (method.equals(INST_FILE_ERROR)) {
-			setHtml(tv, R.string.token_file_unreadable);
+			MarkupRenderer.setText(tv, R.string.token_file_unreadable);
 			extv.setText(b.getString(ARG_TOKEN_DATA));
 		} else if (method.equals(INST_BAD_TOKEN)) {
 			String data = b.getString(ARG_TOKEN_DATA);
 			if ("".equals(data)) {
-				setHtml(tv, R.string.token_file_invalid);
+				MarkupRenderer.setText(tv, R.string.token_file_invalid);
 			} else {
-				setHtml(tv, R.string.token_string_invalid);
+				MarkupRenderer.setText(tv, R.string.token_string_invalid);
 				extv.setText(data);
 			}
 		}
@@ -17,13 +17,18 @@
 
 package app.easytoken;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import android.app.Activity;
 import android.app.Fragment;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.text.method.ScrollingMovementMethod;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
@@ -38,10 +43,23 @@ public class ImportManualEntryFragment extends Fragment {
 
 	public static final String TAG = "EasyToken";
 
+	/* wait for a pause in typing before doing a full parse */
+	private static final int VALIDATE_DELAY_MS = 300;
+
+	/* shortest thing importString() could accept (a v2 CTF string is 81 digits) */
+	private static final int MIN_TOKEN_LEN = 64;
+
+	private static ExecutorService sValidator;
+
 	private OnManualEntryDoneListener mListener;
 
 	private String mTokenStr;
-	private SecurIdToken mToken;
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private Future<?> mPending;
+
+	/* bumped on every edit; results from older generations are dropped */
+	private int mGeneration;
 
 	private Button mButton;
 	private EditText mEntry;
@@ -105,27 +123,106 @@ public class ImportManualEntryFragment extends Fragment {
         });
 	}
 
+	private static synchronized ExecutorService getValidator() {
+		if (sValidator == null) {
+			sValidator = Executors.newSingleThreadExecutor();
+		}
+		return sValidator;
+	}
+
+	/* cheap syntactic test; anything that fails here can't be a token */
+	private static boolean looksLikeToken(String s) {
+		if (s.length() < MIN_TOKEN_LEN) {
+			return false;
+		}
+		if (s.startsWith("<")) {
+			// sdtid XML
+			return true;
+		}
+		if (s.startsWith("http") || s.startsWith("com.rsa")) {
+			return s.contains("ctfData=");
+		}
+
+		// CTF digits (optionally dash-separated), or a base64 v3 token
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+				continue;
+			}
+			if (c != '-' && c != '+' && c != '/' && c != '=' && c != '%') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void cancelValidation() {
+		mGeneration++;
+		mHandler.removeCallbacksAndMessages(null);
+		if (mPending != null) {
+			mPending.cancel(true);
+			mPending = null;
+		}
+	}
+
 	private void updateNextButton() {
+		updateNextButton(VALIDATE_DELAY_MS);
+	}
+
+	private void updateNextButton(int delay) {
+		cancelValidation();
+		mButton.setEnabled(false);
+
 		mTokenStr = mEntry.getText().toString().trim();
+		if (!looksLikeToken(mTokenStr)) {
+			return;
+		}
+
+		final int gen = mGeneration;
+		final String str = mTokenStr;
+		mHandler.postDelayed(new Runnable() {
+			@Override
+			public void run() {
+				mPending = getValidator().submit(new Runnable() {
+					@Override
+					public void run() {
+						final boolean ok = isValid(str);
+						mHandler.post(new Runnable() {
+							@Override
+							public void run() {
+								if (gen == mGeneration && mButton != null) {
+									mButton.setEnabled(ok);
+								}
+							}
+						});
+					}
+				});
+			}
+		}, delay);
+	}
+
+	/* runs on the validator thread; the token string itself is never logged */
+	private static boolean isValid(String s) {
+		if (Thread.currentThread().isInterrupted()) {
+			return false;
+		}
 		try {
-			mToken = SecurIdToken.Companion.importString(mTokenStr, false);
-			mButton.setEnabled(true);
-		} catch (Exception exc){
-			Log.d(TAG, "Invalid token, " + mTokenStr + " : " + exc);
-			mButton.setEnabled(false);
+			SecurIdToken.Companion.importString(s, false);
+			return true;
+		} catch (Exception e) {
+			return false;
 		}
 	}
 
 	@Override
 	public void onResume() {
 		super.onResume();
-		mToken = new SecurIdToken();
-		updateNextButton();
+		updateNextButton(0);
 	}
 
 	@Override
 	public void onPause() {
-		mToken = null;
+		cancelValidation();
 
 		super.onPause();
 	}
@@ -80,6 +80,9 @@ public class ImportMethodFragment extends ListFragment {
 	public void onViewCreated(View view, Bundle savedInstanceState) {
 		super.onViewCreated(view, savedInstanceState);
 
+		// get the camera and barcode scanner ready in case QR import is picked
+		QRFeature.prewarm(getActivity());
+
 		mKeys = getResources().getStringArray(R.array.input_methods_keys);
 		String[] names = getResources().getStringArray(R.array.input_methods);
         setListAdapter(new ArrayAdapter<String>(getActivity(),
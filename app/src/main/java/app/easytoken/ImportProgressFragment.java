@@ -0,0 +1,73 @@
+/*
+ * ImportProgressFragment: shown while ImportSession is working in the background
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import android.app.Activity;
+import android.app.Fragment;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+public class ImportProgressFragment extends Fragment {
+
+	public static final String TAG = "EasyToken";
+
+	private OnImportCancelListener mListener;
+	private TextView mText;
+
+	public interface OnImportCancelListener {
+		public void onImportCancel();
+	}
+
+	@Override
+	public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle b) {
+		View v = inflater.inflate(R.layout.fragment_import_progress, container, false);
+		mText = (TextView)v.findViewById(R.id.progress_text);
+		return v;
+	}
+
+	@Override
+	public void onAttach(Activity activity) {
+		super.onAttach(activity);
+		mListener = (OnImportCancelListener)activity;
+	}
+
+	public void setMessage(int msgRes) {
+		if (mText != null && msgRes != 0) {
+			mText.setText(msgRes);
+		}
+	}
+
+	@Override
+	public void onViewCreated(View view, Bundle savedInstanceState) {
+		super.onViewCreated(view, savedInstanceState);
+
+        Button b = (Button)view.findViewById(R.id.cancel_button);
+        b.setOnClickListener(new OnClickListener() {
+
+			@Override
+			public void onClick(View v) {
+				mListener.onImportCancel();
+			}
+        });
+	}
+}
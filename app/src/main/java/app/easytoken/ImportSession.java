@@ -0,0 +1,655 @@
+/*
+ * ImportSession: holds the token(s) being imported across ImportActivity steps
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.DocumentsContract;
+import android.provider.DocumentsContract.Document;
+import android.util.Log;
+
+import app.easytoken.core.TokenStreamReader;
+import app.easytoken.core.ViolationReport;
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * Each token is parsed once, when the import source is first seen, and the same
+ * SecurIdToken instance is then carried through device ID guessing, unlocking and
+ * saving.  ImportActivity retains this object across configuration changes; after
+ * process death it is rebuilt from the sources saved in the instance state Bundle.
+ *
+ * A session may hold a batch: several files, a whole folder, or a multi-token
+ * sdtid file.  Files are streamed through TokenStreamReader one token at a time.
+ * Tokens that can be unlocked without user input are unlocked right away; the
+ * rest share a single unlock prompt, and everything is confirmed and saved
+ * together.  Unusable tokens in a batch are skipped and counted.
+ *
+ * File reading, parsing, device ID guessing and decryption can be slow (large
+ * files, v3 key derivation), so each step runs on a private worker thread.  The
+ * result is posted back to the main thread and held until a listener is attached,
+ * so a rotation in the middle of a step picks up the result instead of restarting
+ * the work.
+ */
+public class ImportSession {
+
+	public static final String TAG = "EasyToken";
+
+	public static final int RESULT_NONE = 0;
+	public static final int RESULT_NEED_UNLOCK = 1;
+	public static final int RESULT_UNLOCKED = 2;
+	public static final int RESULT_SAVED = 3;
+	public static final int RESULT_LOAD_ERROR = 4;
+	public static final int RESULT_UNLOCK_ERROR = 5;
+
+	public interface OnImportProgressListener {
+		/* msgRes describes the step currently running on the worker thread */
+		public void onImportProgress(int msgRes);
+		public void onImportResult(int result);
+	}
+
+	private interface Task {
+		public int run() throws Exception;
+	}
+
+	private final Context mContext;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+	private OnImportProgressListener mListener;
+	private Future<?> mFuture;
+	private boolean mRunning;
+	private int mProgressRes;
+	private int mPendingResult = RESULT_NONE;
+
+	/*
+	 * Bumped on the main thread whenever a task is started or cancelled.  The worker
+	 * copies it to mWorkerGeneration when a task starts, and stops early (and drops
+	 * its result) once the two no longer match.
+	 */
+	private volatile int mGeneration;
+	private int mWorkerGeneration;
+
+	private static class Entry {
+		/* the string TOKEN was parsed from; dropped after the device ID search */
+		String data;
+		SecurIdToken token;
+		boolean decrypted;
+		String guessedDevID = "";
+
+		/* set after a successful decrypt */
+		String encoded;
+		String serial;
+		long expDate;
+	}
+
+	/* token strings, file/content/tree URIs, or tokens that were re-encoded after unlocking */
+	private final List<String> mSources;
+	private final boolean mSourcesUnlocked;
+
+	/* null until the sources have been read */
+	private ArrayList<Entry> mEntries;
+	private int mSkipped;
+	private final DevidGuesser mGuesser;
+
+	/* set if a step fails */
+	private String mErrorType;
+	private String mErrorData;
+	private int mUnlockErrorRes;
+
+	/*
+	 * If UNLOCKED is true, SOURCES were produced by getEncoded() (i.e. the token has
+	 * already been unlocked once, and is being restored after process death).
+	 */
+	public ImportSession(Context context, List<String> sources, boolean unlocked) {
+		mContext = context.getApplicationContext();
+		mSources = new ArrayList<>(sources);
+		mSourcesUnlocked = unlocked;
+		mGuesser = new DevidGuesser(mContext);
+	}
+
+	public ImportSession(Context context, String source, boolean unlocked) {
+		this(context, Collections.singletonList(source), unlocked);
+	}
+
+	public void setListener(OnImportProgressListener listener) {
+		mListener = listener;
+		if (listener == null) {
+			return;
+		}
+
+		if (mRunning) {
+			listener.onImportProgress(mProgressRes);
+		} else if (mPendingResult != RESULT_NONE) {
+			int result = mPendingResult;
+			mPendingResult = RESULT_NONE;
+			listener.onImportResult(result);
+		}
+	}
+
+	public boolean isRunning() {
+		return mRunning;
+	}
+
+	/* the listener will not be called for the cancelled step */
+	public void cancel() {
+		mGeneration++;
+		mRunning = false;
+		if (mFuture != null) {
+			// decryptSeed() can't be interrupted; its result is simply discarded
+			mFuture.cancel(true);
+			mFuture = null;
+		}
+	}
+
+	public void close() {
+		mListener = null;
+		cancel();
+		mExecutor.shutdownNow();
+	}
+
+	private void run(final Task task) {
+		cancel();
+		final int gen = mGeneration;
+		mRunning = true;
+		mProgressRes = R.string.import_progress_parsing;
+		mPendingResult = RESULT_NONE;
+
+		mFuture = mExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				mWorkerGeneration = gen;
+				if (isCancelled()) {
+					return;
+				}
+
+				int result;
+				try {
+					result = task.run();
+				} catch (Exception e) {
+					if (isCancelled()) {
+						return;
+					}
+					Log.e(TAG, "import step failed", e);
+					mErrorType = ImportInstructionsFragment.INST_BAD_TOKEN;
+					mErrorData = "";
+					result = RESULT_LOAD_ERROR;
+				}
+				postResult(gen, result);
+			}
+		});
+	}
+
+	/* worker thread */
+	private boolean isCancelled() {
+		return mWorkerGeneration != mGeneration;
+	}
+
+	/* worker thread */
+	private void postProgress(final int msgRes) {
+		final int gen = mWorkerGeneration;
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (gen != mGeneration) {
+					return;
+				}
+				mProgressRes = msgRes;
+				if (mListener != null) {
+					mListener.onImportProgress(msgRes);
+				}
+			}
+		});
+	}
+
+	/* worker thread */
+	private void postResult(final int gen, final int result) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (gen != mGeneration) {
+					return;
+				}
+				mRunning = false;
+				mFuture = null;
+				if (mListener != null) {
+					mListener.onImportResult(result);
+				} else {
+					mPendingResult = result;
+				}
+			}
+		});
+	}
+
+	/* parse the tokens, try to guess device IDs, and decrypt everything that needs no user input */
+	public void startImport() {
+		run(new Task() {
+			@Override
+			public int run() throws Exception {
+				if (!ensureLoaded()) {
+					return RESULT_LOAD_ERROR;
+				}
+
+				Iterator<Entry> it = mEntries.iterator();
+				while (it.hasNext()) {
+					Entry e = it.next();
+					if (e.decrypted) {
+						continue;
+					}
+
+					postProgress(R.string.import_progress_devid);
+					if (manualDevID(e) || e.token.passRequired() || e.decrypted) {
+						// locked entries wait for the unlock step
+						continue;
+					}
+
+					postProgress(R.string.import_progress_decrypting);
+					try {
+						decrypt(e, "", e.guessedDevID);
+					} catch (Exception exc) {
+						if (mEntries.size() == 1) {
+							fail(ImportInstructionsFragment.INST_BAD_TOKEN, mSources.get(0));
+							return RESULT_LOAD_ERROR;
+						}
+						it.remove();
+						mSkipped++;
+					}
+				}
+
+				if (mEntries.isEmpty()) {
+					fail(ImportInstructionsFragment.INST_BAD_TOKEN, "");
+					return RESULT_LOAD_ERROR;
+				}
+				return getLocked() != null ? RESULT_NEED_UNLOCK : RESULT_UNLOCKED;
+			}
+		});
+	}
+
+	/*
+	 * PASS and DEVID are tried on every locked token.  If at least one of them
+	 * unlocks, any that are still locked are skipped; otherwise the user gets
+	 * another try.
+	 */
+	public void startUnlock(final String pass, final String devid) {
+		run(new Task() {
+			@Override
+			public int run() throws Exception {
+				if (!ensureLoaded()) {
+					return RESULT_LOAD_ERROR;
+				}
+
+				postProgress(R.string.import_progress_decrypting);
+				Entry failed = null;
+				int unlocked = 0;
+				for (Entry e : mEntries) {
+					if (e.decrypted) {
+						continue;
+					}
+					try {
+						decrypt(e, pass, devid);
+						unlocked++;
+					} catch (Exception exc) {
+						if (failed == null) {
+							failed = e;
+						}
+					}
+				}
+
+				if (failed == null) {
+					return RESULT_UNLOCKED;
+				}
+				if (unlocked > 0) {
+					Iterator<Entry> it = mEntries.iterator();
+					while (it.hasNext()) {
+						if (!it.next().decrypted) {
+							it.remove();
+							mSkipped++;
+						}
+					}
+					return RESULT_UNLOCKED;
+				}
+
+				SecurIdToken token = failed.token;
+				mUnlockErrorRes = R.string.general_failure;
+				if (token.devIdRequired() && !token.checkDevId(devid)) {
+					mUnlockErrorRes = R.string.devid_bad;
+				} else if (token.passRequired()) {
+					mUnlockErrorRes = R.string.pass_bad;
+				}
+				return RESULT_UNLOCK_ERROR;
+			}
+		});
+	}
+
+	public void startSave() {
+		run(new Task() {
+			@Override
+			public int run() throws Exception {
+				if (!ensureLoaded()) {
+					return RESULT_LOAD_ERROR;
+				}
+
+				postProgress(R.string.import_progress_saving);
+				ArrayList<TokenInfo> infos = new ArrayList<>();
+				for (Entry e : mEntries) {
+					if (e.decrypted) {
+						infos.add(new TokenInfo(e.token, null));
+					}
+				}
+				TokenInfo.saveAll(infos);
+				return RESULT_SAVED;
+			}
+		});
+	}
+
+	/* worker thread */
+	private boolean ensureLoaded() {
+		if (mEntries != null) {
+			return true;
+		}
+
+		mEntries = new ArrayList<>();
+		for (String source : mSources) {
+			if (isCancelled()) {
+				break;
+			}
+			if (mSourcesUnlocked) {
+				addToken(source, source);
+			} else {
+				loadSource(source);
+			}
+		}
+
+		if (mSourcesUnlocked) {
+			for (Entry e : mEntries) {
+				try {
+					decrypt(e, "", "");
+				} catch (Exception exc) {
+					Log.e(TAG, "error restoring token", exc);
+				}
+			}
+		}
+
+		if (mEntries.isEmpty()) {
+			mEntries = null;
+			if (mErrorType == null) {
+				fail(ImportInstructionsFragment.INST_BAD_TOKEN, "");
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/* worker thread */
+	private void loadSource(String data) {
+		Uri uri = Uri.parse(data);
+		String path = uri.getPath();
+
+		if (path != null &&
+			("file".equals(uri.getScheme()) || "content".equals(uri.getScheme()))) {
+			/*
+			 * Arguably we shouldn't take file:// URIs from QR codes,
+			 * and maybe we should be more careful about what we accept
+			 * from other apps too
+			 */
+			postProgress(R.string.import_progress_reading);
+			if (DocumentsContract.isTreeUri(uri)) {
+				loadTree(uri);
+			} else {
+				loadFile(uri);
+			}
+		} else {
+			addToken(data, data);
+		}
+	}
+
+	/* worker thread: imports every file at the top level of a folder picked with OpenDocumentTree */
+	private void loadTree(Uri tree) {
+		ContentResolver cr = mContext.getContentResolver();
+		String parentId = DocumentsContract.getTreeDocumentId(tree);
+		Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(tree, parentId);
+
+		Cursor c = null;
+		try {
+			c = cr.query(children, new String[] {
+					Document.COLUMN_DOCUMENT_ID, Document.COLUMN_MIME_TYPE }, null, null, null);
+			while (c != null && c.moveToNext() && !isCancelled()) {
+				if (Document.MIME_TYPE_DIR.equals(c.getString(1))) {
+					continue;
+				}
+				loadFile(DocumentsContract.buildDocumentUriUsingTree(tree, c.getString(0)));
+			}
+		} catch (Exception e) {
+			Log.e(TAG, "error listing folder", e);
+			fail(ImportInstructionsFragment.INST_FILE_ERROR, tree.getPath());
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
+	/* worker thread */
+	private void loadFile(Uri uri) {
+		TokenStreamReader reader = null;
+		try {
+			reader = new TokenStreamReader(Misc.openUri(mContext, uri));
+			String s;
+			while ((s = reader.next()) != null && !isCancelled()) {
+				addToken(s, "");
+			}
+		} catch (IOException e) {
+			Log.e(TAG, "error reading token file", e);
+			fail(ImportInstructionsFragment.INST_FILE_ERROR, uri.getPath());
+			mSkipped++;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException ignored) { }
+			}
+		}
+	}
+
+	/* worker thread; ERRDATA is shown to the user if this is the only token and it is invalid */
+	private void addToken(String data, String errData) {
+		postProgress(R.string.import_progress_parsing);
+		try {
+			Entry e = new Entry();
+			Tracing.begin("importString");
+			try {
+				e.token = SecurIdToken.Companion.importString(data, false);
+			} finally {
+				Tracing.end();
+			}
+			e.data = data;
+			mEntries.add(e);
+		} catch (Exception exc) {
+			Log.e(TAG, "error loading token", exc);
+			fail(ImportInstructionsFragment.INST_BAD_TOKEN, errData);
+			mSkipped++;
+		}
+	}
+
+	/* records the first error; later errors in a batch are only counted */
+	private boolean fail(String errType, String errData) {
+		if (mErrorType == null) {
+			mErrorType = errType;
+			mErrorData = errData;
+		}
+		return false;
+	}
+
+	/* returns true if the user needs to enter the device ID */
+	private boolean manualDevID(Entry e) throws InterruptedException {
+		if (!e.token.devIdRequired()) {
+			// token doesn't require a device ID at all
+			e.data = null;
+			return false;
+		}
+
+		DevidGuesser.Match m = mGuesser.guess(e.token, e.data);
+		e.data = null;
+		if (m == null) {
+			// no luck, revert back to manual entry
+			e.guessedDevID = "";
+			return true;
+		}
+
+		// guessed correctly (probably) - save it
+		e.guessedDevID = m.devid;
+		if (m.token != null) {
+			// this copy was unlocked by the trial decrypt
+			e.token = m.token;
+			onDecrypted(e);
+			mGuesser.recordHit(m.devid);
+		}
+		return false;
+	}
+
+	/* throws if the password or device ID is wrong; the token may be retried afterward */
+	private void decrypt(Entry e, String pass, String devid) throws Exception {
+		if (e.decrypted) {
+			return;
+		}
+		ViolationReport.noteCrypto("decryptSeed");
+		Tracing.begin("decryptSeed");
+		try {
+			e.token.decryptSeed(pass, devid);
+		} finally {
+			Tracing.end();
+		}
+		onDecrypted(e);
+		if (e.token.devIdRequired()) {
+			mGuesser.recordHit(devid);
+		}
+	}
+
+	private void onDecrypted(Entry e) {
+		e.decrypted = true;
+		e.data = null;
+		e.encoded = e.token.encodeToken("", "", 2);
+		e.serial = e.token.getSerial();
+		e.expDate = e.token.unixExpDate() * 1000L;
+	}
+
+	private Entry getLocked() {
+		if (mEntries == null) {
+			return null;
+		}
+		for (Entry e : mEntries) {
+			if (!e.decrypted) {
+				return e;
+			}
+		}
+		return null;
+	}
+
+	/* parses DATA just far enough to read the serial number; null if it isn't a token */
+	public static String peekSerial(String data) {
+		try {
+			return SecurIdToken.Companion.importString(data, false).getSerial();
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/*
+	 * The getters below should only be called from the main thread, after the
+	 * listener has received a result.
+	 */
+
+	public boolean isBatch() {
+		return mSources.size() > 1 || (mEntries != null && mEntries.size() > 1) || mSkipped > 0;
+	}
+
+	/* the unlock prompt covers every token that is still locked */
+	public boolean isPassRequired() {
+		for (Entry e : mEntries) {
+			if (!e.decrypted && e.token.passRequired()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isDevIdRequired() {
+		for (Entry e : mEntries) {
+			if (!e.decrypted && e.token.devIdRequired()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getGuessedDevID() {
+		Entry e = getLocked();
+		return e == null ? "" : e.guessedDevID;
+	}
+
+	/* single-token sessions only: the unlocked token, re-encoded without a password */
+	public String getEncoded() {
+		return mEntries.get(0).encoded;
+	}
+
+	public String getSerial() {
+		return mEntries.get(0).serial;
+	}
+
+	public long getExpDate() {
+		return mEntries.get(0).expDate;
+	}
+
+	public ArrayList<String> getSerials() {
+		ArrayList<String> ret = new ArrayList<>();
+		for (Entry e : mEntries) {
+			if (e.decrypted) {
+				ret.add(e.serial);
+			}
+		}
+		return ret;
+	}
+
+	public int getSkippedCount() {
+		return mSkipped;
+	}
+
+	public String getErrorType() {
+		return mErrorType;
+	}
+
+	public String getErrorData() {
+		return mErrorData;
+	}
+
+	public int getUnlockErrorRes() {
+		return mUnlockErrorRes;
+	}
+}
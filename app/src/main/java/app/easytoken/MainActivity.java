@@ -20,6 +20,8 @@ package app.easytoken;
 import android.app.Fragment;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -30,6 +32,8 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import java.util.ArrayList;
 
+import app.easytoken.core.PerfCounters;
+
 public class MainActivity extends AppCompatActivity
 		implements GettingStartedFragment.OnImportButtonClickedListener,
 					TokencodeFragment.OnTokenListChangeHandler {
@@ -40,6 +44,7 @@ public class MainActivity extends AppCompatActivity
 	private static final String EXTRA_TOKEN_PRESENT = "app.easytoken.token_present";
 
 	private long mLastModified;
+
 	private boolean mTokenPresent;
 	ArrayAdapter<TokenInfo> listAdapter;
 
@@ -56,7 +61,7 @@ public class MainActivity extends AppCompatActivity
 	private void setupFragment() {
 		Fragment frag;
 
-		mLastModified = TokenInfo.lastModified;
+		mLastModified = TokenInfo.lastModified();
 		ArrayList<TokenInfo> infoItems = TokenInfo.getTokens();
 		if (infoItems != null) {
 			listAdapter = new TokencodeFragment(this, R.layout.token_diag_info, infoItems);
@@ -103,7 +108,13 @@ public class MainActivity extends AppCompatActivity
 	protected void onResume() {
 		super.onResume();
 
-		if (TokenInfo.lastModified != mLastModified) {
+		// only when launching this activity is what started the process
+		if (Application.takeColdLaunch()) {
+			PerfCounters.recordTime(PerfCounters.COLD_START_FIRST_ACTIVITY,
+					(SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) * 1000000);
+		}
+
+		if (TokenInfo.lastModified() != mLastModified) {
 			setupFragment();
 		}
 	}
@@ -124,6 +135,9 @@ public class MainActivity extends AppCompatActivity
 		case R.id.action_settings:
 			BareActivity.startWithFrag(this, SettingsFragment.class);
 			return true;
+		case R.id.action_diagnostics:
+			BareActivity.startWithFrag(this, DiagnosticsFragment.class);
+			return true;
 		case R.id.action_help:
 			BareActivity.startWithLayout(this, R.layout.activity_help);
 			return true;
@@ -144,7 +158,7 @@ public class MainActivity extends AppCompatActivity
 
 	@Override
 	public void onTokenListChanged() {
-		if (TokenInfo.lastModified != mLastModified) {
+		if (TokenInfo.lastModified() != mLastModified) {
 			setupFragment();
 		}
 	}
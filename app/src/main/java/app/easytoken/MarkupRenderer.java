@@ -0,0 +1,106 @@
+/*
+ * MarkupRenderer: converts help text with markdown-style links into Spanned
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.method.LinkMovementMethod;
+import android.text.style.URLSpan;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.TextView;
+
+/*
+ * Help, about and import instruction strings are plain text, where
+ *
+ *   [link text](http://foo.bar.com)
+ *
+ * becomes a link and {pkg-info} becomes "Easy Token vX.Y".  The result is
+ * built directly as spans in one pass over the string, and cached per string
+ * resource and locale; TextView copies it on setText(), so sharing is safe.
+ */
+public class MarkupRenderer {
+
+	public static final String TAG = "EasyToken";
+
+	private static final Pattern LINK = Pattern.compile("\\[(.+?)\\]\\((\\S+?)\\)");
+	private static final String PKG_INFO = "{pkg-info}";
+
+	private static final LruCache<String, Spanned> sCache = new LruCache<String, Spanned>(64);
+
+	private static String getPkgInfo(Context context) {
+		try {
+			PackageInfo packageinfo = context.getPackageManager()
+					.getPackageInfo(context.getPackageName(), 0);
+
+			StringBuilder sb = new StringBuilder();
+			sb.append(context.getString(packageinfo.applicationInfo.labelRes));
+			sb.append(" v");
+			sb.append(packageinfo.versionName);
+			return sb.toString();
+		} catch (NameNotFoundException e) {
+			Log.e(TAG, "can't retrieve package version");
+			return "Unknown package v0.00";
+		}
+	}
+
+	public static Spanned render(Context context, int resId) {
+		Locale locale = context.getResources().getConfiguration().getLocales().get(0);
+		String key = resId + "/" + locale.toLanguageTag();
+
+		Spanned ret = sCache.get(key);
+		if (ret == null) {
+			ret = convert(context, context.getString(resId));
+			sCache.put(key, ret);
+		}
+		return ret;
+	}
+
+	/* renders RESID into TV and makes its links clickable */
+	public static void setText(TextView tv, int resId) {
+		tv.setText(render(tv.getContext(), resId));
+		tv.setMovementMethod(LinkMovementMethod.getInstance());
+	}
+
+	private static Spanned convert(Context context, String in) {
+		if (in.contains(PKG_INFO)) {
+			in = in.replace(PKG_INFO, getPkgInfo(context));
+		}
+
+		SpannableStringBuilder out = new SpannableStringBuilder();
+		Matcher m = LINK.matcher(in);
+		int last = 0;
+
+		while (m.find()) {
+			out.append(in, last, m.start());
+			int start = out.length();
+			out.append(m.group(1));
+			out.setSpan(new URLSpan(m.group(2)), start, out.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+			last = m.end();
+		}
+		out.append(in, last, in.length());
+		return out;
+	}
+}
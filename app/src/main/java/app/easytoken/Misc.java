@@ -18,9 +18,11 @@
 package app.easytoken;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
@@ -40,14 +42,17 @@ public class Misc {
 		StringWriter sw = new StringWriter();
     	char[] buffer = new char[BUFLEN];
 
-    	while (true) {
-    		int len = reader.read(buffer);
-    		if (len == -1) {
-    			break;
-    		}
-    		sw.write(buffer, 0, len);
+    	try {
+	    	while (true) {
+	    		int len = reader.read(buffer);
+	    		if (len == -1) {
+	    			break;
+	    		}
+	    		sw.write(buffer, 0, len);
+	    	}
+    	} finally {
+    		reader.close();
     	}
-		reader.close();
     	return sw.toString();
 	}
 
@@ -61,19 +66,18 @@ public class Misc {
 		return null;
 	}
 
+	/* the caller must close the returned Reader */
+	public static Reader openUri(Context context, Uri uri) throws IOException {
+		InputStream fs = context.getContentResolver().openInputStream(uri);
+		if (fs == null) {
+			throw new FileNotFoundException(uri.toString());
+		}
+		return new InputStreamReader(fs, "UTF-8");
+	}
+
 	public static String readStringFromUri(Context context, Uri uri) {
 		try {
-			InputStream fs = context.getContentResolver().openInputStream(uri);
-			byte buffer[] = new byte[BUFLEN];
-
-			try {
-				int len = fs.read(buffer);
-				byte newbuf[] = new byte[len];
-				System.arraycopy(buffer, 0, newbuf, 0, len);
-				return new String(newbuf);
-			} finally {
-				fs.close();
-			}
+			return readAndClose(openUri(context, uri));
 		} catch (Exception e) {
 			Log.e(TAG, "error reading from content provider", e);
 		}
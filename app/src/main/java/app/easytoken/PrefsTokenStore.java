@@ -0,0 +1,60 @@
+/*
+ * PrefsTokenStore: TokenStore backed by the default SharedPreferences
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import java.util.Collections;
+import java.util.Set;
+
+import android.content.SharedPreferences;
+
+import app.easytoken.core.TokenStore;
+
+/* read side of the preference layout written by TokenInfo */
+public class PrefsTokenStore implements TokenStore {
+
+	private final SharedPreferences mPrefs;
+
+	public PrefsTokenStore(SharedPreferences prefs) {
+		mPrefs = prefs;
+	}
+
+	@Override
+	public Set<String> getSerials() {
+		return mPrefs.getStringSet("token_ids", Collections.<String>emptySet());
+	}
+
+	@Override
+	public String getTokenString(String serial) {
+		return mPrefs.getString("token_str_" + serial, null);
+	}
+
+	@Override
+	public String getPin(String serial) {
+		return mPrefs.getString("token_pin_" + serial, null);
+	}
+
+	@Override
+	public String getName(String serial) {
+		return mPrefs.getString("token_name_" + serial, null);
+	}
+
+	@Override
+	public long lastModified() {
+		return TokenInfo.lastModified();
+	}
+}
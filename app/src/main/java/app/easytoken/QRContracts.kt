@@ -0,0 +1,64 @@
+package app.easytoken
+
+import android.app.Activity
+import android.content.Context
+import android.content.Intent
+import android.net.Uri
+import android.os.SystemClock
+import androidx.activity.result.contract.ActivityResultContract
+
+/*
+ * The scanner itself lives in the on-demand "qrscan" module, so these contracts
+ * refer to it by name.  Callers must make sure the module is installed first
+ * (see QRFeature).
+ */
+class QRResult: ActivityResultContract<Unit, String?>() {
+    companion object {
+        const val EXTRA_QR_RESULT = "app.easytoken.extra.QR_RESULT"
+        const val EXTRA_START_TIME = "app.easytoken.extra.START_TIME"
+    }
+
+    override fun createIntent(context: Context, input: Unit?) =
+        Intent().setClassName(context, QRFeature.ACTIVITY)
+            .putExtra(EXTRA_START_TIME, SystemClock.elapsedRealtime())
+
+    override fun parseResult(resultCode: Int, result: Intent?) : String? {
+        if (resultCode != Activity.RESULT_OK) {
+            return null
+        }
+        return result?.getStringExtra(EXTRA_QR_RESULT)
+    }
+}
+
+/* keeps scanning until the user hits Done; returns every distinct token payload */
+class QRBatchResult: ActivityResultContract<Unit, ArrayList<String>?>() {
+    companion object {
+        const val EXTRA_BATCH = "app.easytoken.extra.QR_BATCH"
+        const val EXTRA_QR_RESULTS = "app.easytoken.extra.QR_RESULTS"
+    }
+
+    override fun createIntent(context: Context, input: Unit?) =
+        Intent().setClassName(context, QRFeature.ACTIVITY)
+            .putExtra(EXTRA_BATCH, true)
+            .putExtra(QRResult.EXTRA_START_TIME, SystemClock.elapsedRealtime())
+
+    override fun parseResult(resultCode: Int, result: Intent?) : ArrayList<String>? {
+        if (resultCode != Activity.RESULT_OK) {
+            return null
+        }
+        return result?.getStringArrayListExtra(EXTRA_QR_RESULTS)
+    }
+}
+
+/* decodes a QR code from a picked image or PDF; the module must be installed */
+class QRImageResult: ActivityResultContract<Uri, String?>() {
+    override fun createIntent(context: Context, input: Uri) =
+        Intent().setClassName(context, QRFeature.IMAGE_ACTIVITY).setData(input)
+
+    override fun parseResult(resultCode: Int, result: Intent?) : String? {
+        if (resultCode != Activity.RESULT_OK) {
+            return null
+        }
+        return result?.getStringExtra(QRResult.EXTRA_QR_RESULT)
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * QRFeature: installs and prewarms the on-demand QR scanner module
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.IntentSender;
+import android.util.Log;
+
+import com.google.android.play.core.splitinstall.SplitInstallManager;
+import com.google.android.play.core.splitinstall.SplitInstallManagerFactory;
+import com.google.android.play.core.splitinstall.SplitInstallRequest;
+import com.google.android.play.core.splitinstall.SplitInstallSessionState;
+import com.google.android.play.core.splitinstall.SplitInstallStateUpdatedListener;
+import com.google.android.play.core.splitinstall.model.SplitInstallSessionStatus;
+import com.google.android.play.core.tasks.OnFailureListener;
+import com.google.android.play.core.tasks.OnSuccessListener;
+
+/*
+ * CameraX and ML Kit only ship in the "qrscan" dynamic feature module, so the
+ * base APK (and every process that shows tokencodes) never loads them.  Nothing
+ * in the base may reference the module's classes directly; they are reached by
+ * name once the module is installed.
+ */
+public class QRFeature {
+
+	public static final String TAG = "EasyToken";
+
+	public static final String MODULE = "qrscan";
+	public static final String ACTIVITY = "app.easytoken.qrscan.QRImportActivity";
+	public static final String IMAGE_ACTIVITY = "app.easytoken.qrscan.QRImageActivity";
+	private static final String WARMUP = "app.easytoken.qrscan.QRWarmup";
+
+	private static final int REQUEST_CONFIRM = 20;
+
+	public interface OnQRFeatureListener {
+		public void onQRFeatureReady();
+		public void onQRFeatureFailed();
+	}
+
+	public static boolean isInstalled(Context context) {
+		return SplitInstallManagerFactory.create(context).getInstalledModules().contains(MODULE);
+	}
+
+	/* warms up the camera and scanner, but only if the module is already present */
+	public static void prewarm(Context context) {
+		if (!isInstalled(context)) {
+			return;
+		}
+		try {
+			Class.forName(WARMUP, true, context.getClassLoader())
+				.getMethod("prewarm", Context.class)
+				.invoke(null, context);
+		} catch (Exception e) {
+			Log.w(TAG, "QR prewarm failed", e);
+		}
+	}
+
+	/* the install in progress, if any; lets a re-created activity pick it up again */
+	private static int sSessionId;
+
+	/*
+	 * An install that an activity is waiting for.  The state listener holds on to
+	 * the activity, so call cancel() from onDestroy(); the install itself keeps
+	 * going, and install() from the new instance attaches to it again.
+	 */
+	public static class Request {
+		private final SplitInstallManager mMgr;
+		private SplitInstallStateUpdatedListener mStateListener;
+
+		private Request(SplitInstallManager mgr) {
+			mMgr = mgr;
+		}
+
+		public void cancel() {
+			if (mStateListener != null) {
+				mMgr.unregisterListener(mStateListener);
+				mStateListener = null;
+			}
+		}
+
+		private boolean isActive() {
+			return mStateListener != null;
+		}
+	}
+
+	/*
+	 * Calls back on the main thread once the module can be used.  Returns null if
+	 * it already could (the listener has been called), otherwise a Request the
+	 * caller must cancel() when it goes away.
+	 */
+	public static Request install(final Activity activity, final OnQRFeatureListener listener) {
+		final SplitInstallManager mgr = SplitInstallManagerFactory.create(activity);
+		if (mgr.getInstalledModules().contains(MODULE)) {
+			sSessionId = 0;
+			listener.onQRFeatureReady();
+			return null;
+		}
+
+		final Request req = new Request(mgr);
+		req.mStateListener = new SplitInstallStateUpdatedListener() {
+			@Override
+			public void onStateUpdate(SplitInstallSessionState state) {
+				if (!req.isActive() || !state.moduleNames().contains(MODULE)) {
+					return;
+				}
+				switch (state.status()) {
+				case SplitInstallSessionStatus.REQUIRES_USER_CONFIRMATION:
+					try {
+						mgr.startConfirmationDialogForResult(state, activity, REQUEST_CONFIRM);
+					} catch (IntentSender.SendIntentException e) {
+						finish(req);
+						listener.onQRFeatureFailed();
+					}
+					break;
+				case SplitInstallSessionStatus.INSTALLED:
+					finish(req);
+					listener.onQRFeatureReady();
+					break;
+				case SplitInstallSessionStatus.FAILED:
+				case SplitInstallSessionStatus.CANCELED:
+					finish(req);
+					listener.onQRFeatureFailed();
+					break;
+				}
+			}
+		};
+		mgr.registerListener(req.mStateListener);
+
+		if (sSessionId != 0) {
+			// started by an earlier instance of the activity; catch up on what we missed
+			mgr.getSessionState(sSessionId).addOnSuccessListener(new OnSuccessListener<SplitInstallSessionState>() {
+				@Override
+				public void onSuccess(SplitInstallSessionState state) {
+					if (req.mStateListener != null) {
+						req.mStateListener.onStateUpdate(state);
+					}
+				}
+			}).addOnFailureListener(new OnFailureListener() {
+				@Override
+				public void onFailure(Exception e) {
+					// the session is gone; start a new one
+					sSessionId = 0;
+					if (req.isActive()) {
+						startInstall(mgr, req, listener);
+					}
+				}
+			});
+		} else {
+			startInstall(mgr, req, listener);
+		}
+		return req;
+	}
+
+	private static void startInstall(SplitInstallManager mgr, final Request req,
+			final OnQRFeatureListener listener) {
+		SplitInstallRequest sr = SplitInstallRequest.newBuilder().addModule(MODULE).build();
+		mgr.startInstall(sr).addOnSuccessListener(new OnSuccessListener<Integer>() {
+			@Override
+			public void onSuccess(Integer sessionId) {
+				sSessionId = sessionId;
+			}
+		}).addOnFailureListener(new OnFailureListener() {
+			@Override
+			public void onFailure(Exception e) {
+				Log.w(TAG, "QR module install failed", e);
+				if (req.isActive()) {
+					finish(req);
+					listener.onQRFeatureFailed();
+				}
+			}
+		});
+	}
+
+	private static void finish(Request req) {
+		sSessionId = 0;
+		req.cancel();
+	}
+}
@@ -45,5 +45,13 @@ public class SettingsFragment extends PreferenceFragment {
 				return true;
 			}
 		});
+
+		findPreference(Tracing.PREF_KEY).setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+			@Override
+			public boolean onPreferenceChange(Preference preference, Object newValue) {
+				Tracing.setEnabled((Boolean)newValue || Tracing.isDebuggable(getActivity()));
+				return true;
+			}
+		});
 	}
 }
@@ -0,0 +1,94 @@
+/*
+ * StrictPolicy: debug-build StrictMode setup feeding ViolationReport
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import java.util.concurrent.Executor;
+
+import android.os.Build;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+import android.util.Log;
+
+import app.easytoken.core.ViolationReport;
+
+/*
+ * Only installed in debug builds (see Application).  Violations are not fatal;
+ * they are aggregated by call site in ViolationReport, which shows up in
+ * "adb shell dumpsys activity provider app.easytoken/.TokencodeProvider" and
+ * in the diagnostics export.
+ */
+public class StrictPolicy {
+
+	public static final String TAG = "EasyToken";
+
+	/* one frame at 60 Hz */
+	private static final long SLOW_CALL_MS = 16;
+
+	/* report on the violating thread; ViolationReport is thread-safe */
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(Runnable r) {
+			r.run();
+		}
+	};
+
+	public static void install() {
+		ViolationReport.setMainThread(Looper.getMainLooper().getThread());
+		ViolationReport.setSlowCallThresholdMs(SLOW_CALL_MS);
+		ViolationReport.setEnabled(true);
+
+		StrictMode.ThreadPolicy.Builder tp = new StrictMode.ThreadPolicy.Builder()
+			.detectDiskReads()
+			.detectDiskWrites()
+			.detectNetwork()
+			.detectCustomSlowCalls()
+			.detectResourceMismatches()
+			.detectUnbufferedIo();
+
+		StrictMode.VmPolicy.Builder vp = new StrictMode.VmPolicy.Builder()
+			.detectLeakedClosableObjects()
+			.detectLeakedRegistrationObjects()
+			.detectLeakedSqlLiteObjects()
+			.detectActivityLeaks()
+			.detectFileUriExposure();
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+			tp.penaltyListener(DIRECT, new StrictMode.OnThreadViolationListener() {
+				@Override
+				public void onThreadViolation(Violation v) {
+					ViolationReport.record(v.getClass().getSimpleName(), v);
+				}
+			});
+			vp.penaltyListener(DIRECT, new StrictMode.OnVmViolationListener() {
+				@Override
+				public void onVmViolation(Violation v) {
+					ViolationReport.record(v.getClass().getSimpleName(), v);
+				}
+			});
+		} else {
+			// no listener API; fall back to logcat
+			tp.penaltyLog();
+			vp.penaltyLog();
+		}
+
+		StrictMode.setThreadPolicy(tp.build());
+		StrictMode.setVmPolicy(vp.build());
+		Log.i(TAG, "StrictMode enabled");
+	}
+}
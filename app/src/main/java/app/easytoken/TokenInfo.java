@@ -19,10 +19,11 @@ package app.easytoken;
 
 import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import android.content.Context;
 import android.content.SharedPreferences;
@@ -33,6 +34,11 @@ import android.util.Log;
 
 import org.jetbrains.annotations.Nullable;
 
+import app.easytoken.core.PerfCounters;
+import app.easytoken.core.ViolationReport;
+import app.easytoken.core.TokenClock;
+import app.easytoken.core.TokenStore;
+import app.easytoken.core.TokencodeCache;
 import us.berkovitz.stoken.SecurIdToken;
 
 
@@ -45,17 +51,25 @@ public class TokenInfo {
 	public String pin;
 	public boolean pinRequired;
 
-	public static long lastModified;
+	/*
+	 * Bumped after every committed write.  TokenStore users on other threads
+	 * read it before loading tokens, so bumping any earlier could let them load
+	 * the old data and then cache it under the new stamp.
+	 */
+	private static final AtomicLong sModCount = new AtomicLong();
 
 	private static SharedPreferences mPrefs;
 	private static boolean mSavePin;
 	private static Set<String> mTokens;
 	private static String mDeviceId;
+	private static TokenStore mStore;
+	private static TokencodeCache mCodeCache;
 
 	public static void init(Context context) {
 		mPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+		mStore = new PrefsTokenStore(mPrefs);
 		mSavePin = mPrefs.getBoolean("save_pin", true);
-		mTokens = mPrefs.getStringSet("token_ids", Collections.emptySet());
+		mTokens = mStore.getSerials();
 
 		/*
 		 * ANDROID_ID is unique, but it is only 64 bits long.  So truncate its SHA1 hash to 12 bytes.
@@ -92,8 +106,20 @@ public class TokenInfo {
 		return mDeviceId;
 	}
 
+	public static TokenStore getStore() {
+		return mStore;
+	}
+
+	/* shared by everything that needs codes without driving a TokencodeBackend */
+	public static synchronized TokencodeCache getCodeCache() {
+		if (mCodeCache == null) {
+			mCodeCache = new TokencodeCache(mStore, TokenClock.SYSTEM);
+		}
+		return mCodeCache;
+	}
+
 	private static String getTokenString(String id) {
-		return mPrefs.getString("token_str_" + id, null);
+		return mStore.getTokenString(id);
 	}
 
 	public static TokenInfo getToken(String serial) {
@@ -105,27 +131,36 @@ public class TokenInfo {
 		}
 
 		SecurIdToken token;
+		long t0 = System.nanoTime();
+		Tracing.begin("importString");
 		try {
 			token = SecurIdToken.Companion.importString(s, false);
 		} catch (Exception exc) {
 			Log.e(TAG, "error importing token string #" + serial + ": error " + exc);
 			return null;
+		} finally {
+			Tracing.end();
 		}
 
+		ViolationReport.noteCrypto("decryptSeed");
+		Tracing.begin("decryptSeed");
 		try {
 			token.decryptSeed("", "");
 		} catch (Exception exc){
 			Log.e(TAG, "error decrypting token string #" + serial + ": error " + exc);
 			return null;
+		} finally {
+			Tracing.end();
 		}
+		PerfCounters.recordSince(PerfCounters.TOKEN_DECODE, t0);
+		ViolationReport.noteSlowCall("getToken", t0);
 
-		return new TokenInfo(token,
-				mPrefs.getString("token_pin_" + serial, null),
-				mPrefs.getString("token_name_" + serial, "UNKNOWN"));
+		String name = mStore.getName(serial);
+		return new TokenInfo(token, mStore.getPin(serial), name != null ? name : "UNKNOWN");
 	}
 
 	public static ArrayList<TokenInfo> getTokens() {
-		mTokens = mPrefs.getStringSet("token_ids", Collections.emptySet());
+		mTokens = mStore.getSerials();
 		if (mTokens.size() == 0) {
 			return null;
 		}
@@ -160,8 +195,11 @@ public class TokenInfo {
 		this(token, pin, token.getSerial());
 	}
 
+	public static long lastModified() {
+		return sModCount.get();
+	}
+
 	public void delete() {
-		lastModified = System.currentTimeMillis();
 		HashSet<String> newTokens = new HashSet<>();
 		for (String serial: mTokens) {
 			if(!serial.equals(token.getSerial()))
@@ -174,6 +212,7 @@ public class TokenInfo {
 			.remove("token_name_" + token.getSerial())
 			.putStringSet("token_ids", newTokens)
 			.commit();
+		sModCount.incrementAndGet();
 	}
 
 	/* returns true if changed, false otherwise */
@@ -186,26 +225,47 @@ public class TokenInfo {
 		return true;
 	}
 
-	public String save() {
-		lastModified = System.currentTimeMillis();
-		HashSet<String> newTokens = new HashSet<>(mTokens);
-		newTokens.add(token.getSerial());
-
-		Editor ed = mPrefs.edit();
+	private void writeTo(Editor ed, Set<String> ids) {
+		ids.add(token.getSerial());
 
 		writePrefString(ed, "token_str_" + token.getSerial(), token.encodeToken("", "", 2));
 		writePrefString(ed, "token_name_" + token.getSerial(), name);
-		ed.putStringSet("token_ids", newTokens);
 
 		if (mSavePin) {
 			writePrefString(ed, "token_pin_" + token.getSerial(), pin);
 		} else {
 			writePrefString(ed, "token_pin_" + token.getSerial(), null);
 		}
+	}
+
+	public String save() {
+		HashSet<String> newTokens = new HashSet<>(mTokens);
+
+		Editor ed = mPrefs.edit();
+		writeTo(ed, newTokens);
+		ed.putStringSet("token_ids", newTokens);
 		ed.commit();
+		sModCount.incrementAndGet();
+
+		mTokens = newTokens;
 		return token.getSerial();
 	}
 
+	/* writes a batch of tokens with a single commit */
+	public static void saveAll(List<TokenInfo> infos) {
+		HashSet<String> newTokens = new HashSet<>(mTokens);
+
+		Editor ed = mPrefs.edit();
+		for (TokenInfo info : infos) {
+			info.writeTo(ed, newTokens);
+		}
+		ed.putStringSet("token_ids", newTokens);
+		ed.commit();
+		sModCount.incrementAndGet();
+
+		mTokens = newTokens;
+	}
+
 	public static void setSavePin(boolean val) {
 		mSavePin = val;
 
@@ -215,6 +275,7 @@ public class TokenInfo {
 			ed.remove("token_pin_" + serial);
 		}
 		ed.commit();
+		sModCount.incrementAndGet();
 	}
 
 	public boolean isPinMissing() {
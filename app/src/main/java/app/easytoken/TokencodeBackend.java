@@ -17,8 +17,6 @@
 
 package app.easytoken;
 
-import java.util.Calendar;
-
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -26,6 +24,11 @@ import android.content.IntentFilter;
 import android.os.Handler;
 import android.os.PowerManager;
 
+import app.easytoken.core.PerfCounters;
+import app.easytoken.core.TokenClock;
+import app.easytoken.core.TokencodeFormat;
+import app.easytoken.core.ViolationReport;
+
 public class TokencodeBackend extends BroadcastReceiver {
 
 	public static final String TAG = "EasyToken";
@@ -41,7 +44,7 @@ public class TokencodeBackend extends BroadcastReceiver {
 	private Runnable mRunnable;
 
 	private boolean mCallbackEnabled;
-	private Calendar mLastUpdate;
+	private long mLastUpdate = -1;
 	private String mTokencode;
 	private String mNextTokencode;
 
@@ -129,27 +132,28 @@ public class TokencodeBackend extends BroadcastReceiver {
 	}
 
 	private void doUpdate(boolean reschedule) {
-    	Calendar now = Calendar.getInstance();
-		int second = now.get(Calendar.SECOND);
+		PerfCounters.increment(PerfCounters.TICK_WAKEUP);
+
+		long now = TokenClock.SYSTEM.currentTimeSeconds();
 		int interval = info.token.tokenInterval();
 		String pin = !info.pin.equals("") ? info.pin : "0000";
 
 		// only recompute the tokencodes every <interval> seconds
-		if (interval == 30) {
-			now.set(Calendar.SECOND, second >= 30 ? 30 : 0);
-		} else {
-			now.set(Calendar.SECOND, 0);
-		}
-
-    	if (mLastUpdate == null || now.compareTo(mLastUpdate) != 0) {
-    		long t = now.getTimeInMillis() / 1000;
-
-    		mTokencode = info.token.computeTokenCode(t, pin);
-    		mNextTokencode = info.token.computeTokenCode(t + interval, pin);
-    		mLastUpdate = now;
+		long t = TokenClock.intervalStart(now, interval);
+    	if (t != mLastUpdate) {
+    		PerfCounters.add(PerfCounters.TOKENCODE_COMPUTE, 2);
+    		ViolationReport.noteCrypto("computeTokenCode");
+    		Tracing.begin("computeTokenCode");
+    		try {
+    			mTokencode = info.token.computeTokenCode(t, pin);
+    			mNextTokencode = info.token.computeTokenCode(t + interval, pin);
+    		} finally {
+    			Tracing.end();
+    		}
+    		mLastUpdate = t;
     	}
 
-		mListener.onTokencodeUpdate(mTokencode, mNextTokencode, interval - (second % interval));
+		mListener.onTokencodeUpdate(mTokencode, mNextTokencode, TokenClock.secondsLeft(now, interval));
 
 		if (reschedule && mCallbackEnabled) {
 			mHandler.postDelayed(mRunnable, INTERVAL_MS);
@@ -161,7 +165,6 @@ public class TokencodeBackend extends BroadcastReceiver {
 	}
 
     public static String formatTokencode(String s) {
-    	int midpoint = s.length() / 2;
-    	return s.substring(0, midpoint) + " " + s.substring(midpoint);
+    	return TokencodeFormat.format(s);
     }
 }
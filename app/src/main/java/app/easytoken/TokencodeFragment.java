@@ -37,7 +37,6 @@ import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.PopupMenu;
-import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -50,6 +49,7 @@ import java.util.TimeZone;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import app.easytoken.core.ViolationReport;
 import us.berkovitz.stoken.SecurIdToken;
 
 public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
@@ -59,8 +59,6 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
 
 	public static final String TAG = "EasyToken";
 
-	private boolean mNeedsPin = false;
-
 	private final int resourceLayout;
 	private final Context mContext;
 	private final List<TokenView> mTokens = Collections.synchronizedList(new ArrayList<>());
@@ -69,11 +67,18 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
 	private final Runnable updateRemainingTimeRunnable = new Runnable() {
 		@Override
 		public void run() {
-			synchronized (mTokens) {
-				for (TokenView holder : mTokens) {
-					holder.update();
+			long t0 = System.nanoTime();
+			Tracing.begin("TokencodeFragment.tick");
+			try {
+				synchronized (mTokens) {
+					for (TokenView holder : mTokens) {
+						holder.update();
+					}
 				}
+			} finally {
+				Tracing.end();
 			}
+			ViolationReport.noteSlowCall("TokencodeFragment.tick", t0);
 		}
 	};
 
@@ -106,6 +111,7 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
     		v = vi.inflate(resourceLayout, null);
     		tv = new TokenView();
     		tv.view = v;
+    		tv.findViews(v);
     		v.setTag(tv);
     		synchronized (mTokens){
     			mTokens.add(tv);
@@ -114,19 +120,25 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
     		tv = (TokenView) v.getTag();
 		}
 
-    	tv.token = getItem(position);
+    	/* static fields are only written when the row is (re)bound, not every tick */
+    	TokenInfo token = getItem(position);
+    	if (tv.token != token) {
+    		tv.token = token;
+    		tv.lastUpdate = 0;
+    		tv.populateView(v, token);
+    		tv.setupPinUI(v, token.pin);
+    	}
     	tv.update();
 
     	return v;
     }
 
     private void finishPinDialog(String pin, TokenView tv) {
-    	//setupPinUI(pin);
-
     	if (tv.token.token.pinRequired()) {
     		tv.lastUpdate = 0;
 			tv.token.pin = (pin == null) ? "" : pin;
 			tv.token.save();
+			tv.setupPinUI(tv.view, tv.token.pin);
 		}
 	}
 
@@ -240,31 +252,35 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
 		View view;
 		TokenInfo token;
 		long lastUpdate = 0;
-		TextView mTokencode, mTokenName;
+		TextView mTokenName;
+		TokencodeView mTokencode, mNextTokencode;
 		String mRawTokencode = "";
-		ProgressBar mProgressBar;
+		CountdownBar mCountdown;
+		Button mPinButton;
 		String code = "", nextCode = "";
+		DateFormat mGmtFormat;
 
-		private void onTokencodeUpdate(View parent, String tokencode, String nextTokencode, int secondsLeft) {
-			mProgressBar.setProgress(secondsLeft - 1);
+		private void onTokencodeUpdate(View parent, String tokencode, String nextTokencode) {
 			mRawTokencode = tokencode;
-			mTokencode.setText(TokencodeBackend.formatTokencode(mRawTokencode));
-			writeStatusField(parent, R.id.next_tokencode, R.string.next_tokencode,
-					TokencodeBackend.formatTokencode(nextTokencode));
+			// these only invalidate, and only when the digits change
+			mTokencode.setCode(tokencode);
+			mNextTokencode.setCode(nextTokencode);
 
-			Calendar now = Calendar.getInstance();
-			DateFormat df = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.LONG);
-			df.setTimeZone(TimeZone.getTimeZone("GMT"));
-			String gmt = df.format(now.getTime()).replaceAll(" GMT.*", "");
+			String gmt = mGmtFormat.format(System.currentTimeMillis()).replaceAll(" GMT.*", "");
 			writeStatusField(parent, R.id.gmt, R.string.gmt, gmt);
 		}
 
-		private void populateView(View v, TokenInfo token) {
+		/* once per inflated row */
+		private void findViews(View v) {
 			mTokenName = (TextView)v.findViewById(R.id.token_name);
-			mTokencode = (TextView)v.findViewById(R.id.tokencode);
-			mProgressBar = (ProgressBar)v.findViewById(R.id.progress_bar);
+			mTokencode = (TokencodeView)v.findViewById(R.id.tokencode);
+			mNextTokencode = (TokencodeView)v.findViewById(R.id.next_tokencode);
+			mCountdown = (CountdownBar)v.findViewById(R.id.progress_bar);
 			TokenView thisPtr = this;
 
+			mGmtFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.LONG);
+			mGmtFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
 			Button copyButton = (Button)v.findViewById(R.id.copy_button);
 			copyButton.setOnClickListener(new View.OnClickListener() {
 				@Override
@@ -277,8 +293,8 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
 				}
 			});
 
-			Button pinButton = (Button)v.findViewById(R.id.change_pin_button);
-			pinButton.setOnClickListener(new View.OnClickListener() {
+			mPinButton = (Button)v.findViewById(R.id.change_pin_button);
+			mPinButton.setOnClickListener(new View.OnClickListener() {
 				@Override
 				public void onClick(View v) {
 					changePinDialog(thisPtr);
@@ -311,14 +327,15 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
 					popupMenu.show();
 				}
 			});
+		}
 
-			/* static fields */
+		/* static fields; once per bind */
+		private void populateView(View v, TokenInfo token) {
 			mTokenName.setText(token.name);
-			mNeedsPin = token.pinRequired;
-			pinButton.setEnabled(mNeedsPin);
+			mPinButton.setEnabled(token.pinRequired);
 
 			writeStatusField(v, R.id.token_sn, R.string.token_sn, token.token.getSerial());
-			mProgressBar.setMax(token.token.tokenInterval() - 1);
+			mCountdown.setInterval(token.token.tokenInterval());
 
 			DateFormat df = DateFormat.getDateInstance(DateFormat.SHORT);
 			long exp = token.token.unixExpDate() * 1000L;
@@ -354,7 +371,7 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
 			int res;
 			boolean warn = false;
 
-			if (!mNeedsPin) {
+			if (!token.pinRequired) {
 				res = R.string.not_required;
 			} else if (s == null || s.isEmpty()) {
 				warn = true;
@@ -367,12 +384,6 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
 		}
 
 		public void update(){
-			// depends on mBackend
-			populateView(view, token);
-
-			// depends on mView from populateView()
-			setupPinUI(view, token.pin);
-
 			Calendar now = Calendar.getInstance();
 			int second = now.get(Calendar.SECOND);
 			int interval = token.token.tokenInterval();
@@ -385,11 +396,17 @@ public class TokencodeFragment extends ArrayAdapter<TokenInfo> {
 			long t = now.getTimeInMillis() / 1000;
 			if(t != lastUpdate){
 				String pin = !token.pin.equals("") ? token.pin : "0000";
-				code = token.token.computeTokenCode(t, pin);
-				nextCode = token.token.computeTokenCode(t + interval, pin);
+				ViolationReport.noteCrypto("computeTokenCode");
+				Tracing.begin("computeTokenCode");
+				try {
+					code = token.token.computeTokenCode(t, pin);
+					nextCode = token.token.computeTokenCode(t + interval, pin);
+				} finally {
+					Tracing.end();
+				}
 				lastUpdate = t;
 			}
-			onTokencodeUpdate(view, code, nextCode, interval - (second % interval));
+			onTokencodeUpdate(view, code, nextCode);
 		}
 	}
 }
@@ -0,0 +1,187 @@
+/*
+ * TokencodeProvider: lets other apps (e.g. VPN clients) fetch tokencodes
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+
+import app.easytoken.core.PerfCounters;
+import app.easytoken.core.ViolationReport;
+import app.easytoken.core.TokencodeCache;
+
+/*
+ * Two ways in, both guarded by PERMISSION:
+ *
+ *   query(CONTENT_URI, null, null, serials, null)
+ *     One row per serial (or per stored token if SERIALS is null), with the
+ *     COLUMN_* columns below.
+ *
+ *   call(CONTENT_URI, METHOD_GET_CODES, null, extras)
+ *     EXTRA_SERIALS in, parallel EXTRA_* arrays out.  This skips the cursor
+ *     machinery and is the cheapest way to fetch several codes at once.
+ *
+ * Codes are served from TokencodeCache.  Tokens whose PIN is required but not
+ * saved are reported with COLUMN_PIN_MISSING set and no codes.
+ */
+public class TokencodeProvider extends ContentProvider {
+
+	public static final String TAG = "EasyToken";
+
+	public static final String AUTHORITY = "app.easytoken.tokencode";
+	public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY + "/codes");
+	public static final String PERMISSION = "app.easytoken.permission.READ_TOKENCODE";
+
+	public static final String COLUMN_SERIAL = "serial";
+	public static final String COLUMN_CODE = "code";
+	public static final String COLUMN_NEXT_CODE = "next_code";
+	public static final String COLUMN_SECONDS_LEFT = "seconds_left";
+	public static final String COLUMN_INTERVAL = "interval";
+	public static final String COLUMN_PIN_MISSING = "pin_missing";
+
+	private static final String[] COLUMNS = {
+		COLUMN_SERIAL, COLUMN_CODE, COLUMN_NEXT_CODE, COLUMN_SECONDS_LEFT,
+		COLUMN_INTERVAL, COLUMN_PIN_MISSING
+	};
+
+	public static final String METHOD_GET_CODES = "get_codes";
+	public static final String EXTRA_SERIALS = "serials";
+	public static final String EXTRA_CODES = "codes";
+	public static final String EXTRA_NEXT_CODES = "next_codes";
+	public static final String EXTRA_SECONDS_LEFT = "seconds_left";
+	public static final String EXTRA_INTERVALS = "intervals";
+
+	@Override
+	public boolean onCreate() {
+		// TokenInfo is set up by Application.onCreate(), which runs after this
+		return true;
+	}
+
+	private String[] allSerials() {
+		return TokenInfo.getStore().getSerials().toArray(new String[0]);
+	}
+
+	@Override
+	public Cursor query(Uri uri, String[] projection, String selection,
+			String[] selectionArgs, String sortOrder) {
+		Application.noteNonActivityStart();
+		String serials[] = selectionArgs != null ? selectionArgs : allSerials();
+		TokencodeCache cache = TokenInfo.getCodeCache();
+		long now = System.currentTimeMillis();
+
+		MatrixCursor c = new MatrixCursor(COLUMNS, serials.length);
+		for (String serial : serials) {
+			TokencodeCache.Code code = cache.get(serial, now);
+			if (code == null) {
+				continue;
+			}
+			c.newRow()
+				.add(COLUMN_SERIAL, code.serial)
+				.add(COLUMN_CODE, code.code)
+				.add(COLUMN_NEXT_CODE, code.nextCode)
+				.add(COLUMN_SECONDS_LEFT, code.secondsLeft)
+				.add(COLUMN_INTERVAL, code.interval)
+				.add(COLUMN_PIN_MISSING, code.pinMissing ? 1 : 0);
+		}
+		return c;
+	}
+
+	@Override
+	public Bundle call(String method, String arg, Bundle extras) {
+		Application.noteNonActivityStart();
+		// readPermission only covers query(), so check it by hand here
+		if (getContext().checkCallingPermission(PERMISSION) != PackageManager.PERMISSION_GRANTED) {
+			throw new SecurityException("Requires " + PERMISSION);
+		}
+		if (!METHOD_GET_CODES.equals(method)) {
+			return null;
+		}
+
+		String serials[] = extras != null ? extras.getStringArray(EXTRA_SERIALS) : null;
+		if (serials == null) {
+			serials = allSerials();
+		}
+		TokencodeCache cache = TokenInfo.getCodeCache();
+		long now = System.currentTimeMillis();
+
+		/* unknown serials and missing PINs come back as null codes */
+		String codes[] = new String[serials.length];
+		String nextCodes[] = new String[serials.length];
+		int secondsLeft[] = new int[serials.length];
+		int intervals[] = new int[serials.length];
+		for (int i = 0; i < serials.length; i++) {
+			TokencodeCache.Code code = cache.get(serials[i], now);
+			if (code == null) {
+				continue;
+			}
+			codes[i] = code.code;
+			nextCodes[i] = code.nextCode;
+			secondsLeft[i] = code.secondsLeft;
+			intervals[i] = code.interval;
+		}
+
+		Bundle b = new Bundle();
+		b.putStringArray(EXTRA_SERIALS, serials);
+		b.putStringArray(EXTRA_CODES, codes);
+		b.putStringArray(EXTRA_NEXT_CODES, nextCodes);
+		b.putIntArray(EXTRA_SECONDS_LEFT, secondsLeft);
+		b.putIntArray(EXTRA_INTERVALS, intervals);
+		return b;
+	}
+
+	/* adb shell dumpsys activity provider app.easytoken/.TokencodeProvider */
+	@Override
+	public void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+		DiagnosticsFragment.sampleRuntimeStats();
+		PerfCounters.dump(pw);
+		if (ViolationReport.isEnabled()) {
+			pw.println();
+			pw.println("violations:");
+			ViolationReport.dump(pw);
+		}
+	}
+
+	@Override
+	public String getType(Uri uri) {
+		return "vnd.android.cursor.dir/vnd.app.easytoken.tokencode";
+	}
+
+	/* read-only */
+
+	@Override
+	public Uri insert(Uri uri, ContentValues values) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int delete(Uri uri, String selection, String[] selectionArgs) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+		throw new UnsupportedOperationException();
+	}
+}
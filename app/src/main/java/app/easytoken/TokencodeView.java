@@ -0,0 +1,174 @@
+/*
+ * TokencodeView: draws a tokencode without going through TextView layout
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import app.easytoken.core.TokencodeFormat;
+
+/*
+ * A TextView re-measures (and usually re-lays out its parent) on every
+ * setText(), and the caller has to build a new String to hand it.  Tokencodes
+ * are fixed-width digit strings, so this view sizes itself once from the
+ * widest digit glyph and afterward only invalidates when a digit changes.
+ *
+ * Understands android:textSize and android:textColor from the layout.
+ */
+public class TokencodeView extends View {
+
+	/* sorted, as obtainStyledAttributes() requires */
+	private static final int ATTRS[] = { android.R.attr.textSize, android.R.attr.textColor };
+
+	/* "1234 5678"; longer codes fall back to a relayout */
+	private static final int DEFAULT_DIGITS = 8;
+
+	private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+	/* current and scratch buffers, swapped on change */
+	private char mChars[] = new char[32];
+	private char mScratch[] = new char[32];
+	private int mLen;
+
+	/* cached glyph metrics */
+	private int mDigits = DEFAULT_DIGITS;
+	private float mDigitWidth;
+	private float mSpaceWidth;
+	private float mAscent;
+	private float mDescent;
+
+	public TokencodeView(Context context) {
+		this(context, null);
+	}
+
+	public TokencodeView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+
+		TypedArray a = context.obtainStyledAttributes(attrs, ATTRS);
+		float size = a.getDimension(0, 14 * getResources().getDisplayMetrics().scaledDensity);
+		int color = a.getColor(1, themeTextColor(context));
+		a.recycle();
+
+		mPaint.setColor(color);
+		mPaint.setTextAlign(Paint.Align.LEFT);
+		// tabular figures, where the font has them, so the code doesn't wobble
+		mPaint.setFontFeatureSettings("tnum");
+		setTextSize(size);
+	}
+
+	private static int themeTextColor(Context context) {
+		TypedArray a = context.obtainStyledAttributes(new int[] { android.R.attr.textColorPrimary });
+		int color = a.getColor(0, Color.BLACK);
+		a.recycle();
+		return color;
+	}
+
+	/* in pixels */
+	public void setTextSize(float px) {
+		mPaint.setTextSize(px);
+
+		mDigitWidth = 0;
+		for (char c = '0'; c <= '9'; c++) {
+			mDigitWidth = Math.max(mDigitWidth, mPaint.measureText(String.valueOf(c)));
+		}
+		mSpaceWidth = mPaint.measureText(" ");
+
+		Paint.FontMetrics fm = mPaint.getFontMetrics();
+		mAscent = fm.ascent;
+		mDescent = fm.descent;
+
+		requestLayout();
+		invalidate();
+	}
+
+	/* cheap to call every tick: redraws only if the formatted code differs */
+	public void setCode(CharSequence code) {
+		if (code == null) {
+			code = "";
+		}
+		int len = code.length() + 1;
+		if (len > mScratch.length) {
+			mScratch = new char[len];
+			mChars = new char[len];
+			mLen = 0;
+		}
+
+		int n = TokencodeFormat.format(code, mScratch);
+		if (n == mLen && equals(mScratch, mChars, n)) {
+			return;
+		}
+
+		char tmp[] = mChars;
+		mChars = mScratch;
+		mScratch = tmp;
+		mLen = n;
+
+		if (code.length() > mDigits) {
+			mDigits = code.length();
+			requestLayout();
+		}
+		invalidate();
+	}
+
+	/* allocates; not for the per-tick path */
+	public String getCode() {
+		return new String(mChars, 0, mLen);
+	}
+
+	/* TalkBack can't see what onDraw() paints */
+	@Override
+	public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+		super.onInitializeAccessibilityNodeInfo(info);
+		info.setText(getCode());
+	}
+
+	private static boolean equals(char a[], char b[], int len) {
+		for (int i = 0; i < len; i++) {
+			if (a[i] != b[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		int w = (int) Math.ceil(mDigitWidth * mDigits + mSpaceWidth) + getPaddingLeft() + getPaddingRight();
+		int h = (int) Math.ceil(mDescent - mAscent) + getPaddingTop() + getPaddingBottom();
+		setMeasuredDimension(resolveSize(Math.max(w, getSuggestedMinimumWidth()), widthMeasureSpec),
+				resolveSize(Math.max(h, getSuggestedMinimumHeight()), heightMeasureSpec));
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		if (mLen == 0) {
+			return;
+		}
+		float textWidth = mPaint.measureText(mChars, 0, mLen);
+		int innerWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+		float x = getPaddingLeft() + (innerWidth - textWidth) / 2;
+		float y = getPaddingTop() - mAscent;
+		canvas.drawText(mChars, 0, mLen, x, y, mPaint);
+	}
+}
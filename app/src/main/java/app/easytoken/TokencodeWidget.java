@@ -28,6 +28,7 @@ public class TokencodeWidget extends AppWidgetProvider {
 	@Override
 	public void onReceive(Context context, Intent intent) {
 		super.onReceive(context, intent);
+		Application.noteNonActivityStart();
 		TokencodeWidgetService.kick(context);
 	}
 }
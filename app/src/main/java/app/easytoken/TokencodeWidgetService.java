@@ -17,6 +17,8 @@
 
 package app.easytoken;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -43,6 +45,9 @@ import android.util.TypedValue;
 import android.view.View;
 import android.widget.RemoteViews;
 
+import app.easytoken.core.PerfCounters;
+import app.easytoken.core.ViolationReport;
+
 public class TokencodeWidgetService extends Service
 		implements TokencodeBackend.OnTokencodeUpdateListener {
 
@@ -123,6 +128,7 @@ public class TokencodeWidgetService extends Service
 
 	@Override
 	public int onStartCommand(Intent intent, int flags, int startId) {
+		Application.noteNonActivityStart();
 		String action = intent == null ? null : intent.getAction();
 		if (ACTION_RESTART.equals(action) || !mInitDone) {
 			mContext = getApplicationContext();
@@ -149,6 +155,18 @@ public class TokencodeWidgetService extends Service
 		return null;
 	}
 
+	/* adb shell dumpsys activity service app.easytoken/.TokencodeWidgetService */
+	@Override
+	protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+		DiagnosticsFragment.sampleRuntimeStats();
+		PerfCounters.dump(pw);
+		if (ViolationReport.isEnabled()) {
+			pw.println();
+			pw.println("violations:");
+			ViolationReport.dump(pw);
+		}
+	}
+
 	private float scaleView(Bundle options, int defFontSizeId) {
         Resources res = mContext.getResources();
 
@@ -228,6 +246,16 @@ public class TokencodeWidgetService extends Service
 
 	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
     private int updateWidgets() {
+		Tracing.begin("TokencodeWidgetService.updateWidgets");
+		try {
+			return doUpdateWidgets();
+		} finally {
+			Tracing.end();
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+	private int doUpdateWidgets() {
 		AppWidgetManager mgr = AppWidgetManager.getInstance(mContext);
 		final int ids[] = mgr.getAppWidgetIds(mComponent);
 		final int N = ids.length;
@@ -246,6 +274,7 @@ public class TokencodeWidgetService extends Service
 	        }
 
 			mgr.updateAppWidget(id, views);
+			PerfCounters.increment(PerfCounters.WIDGET_UPDATE);
 		}
 
 		if (!mIsForeground && mFgPref) {
@@ -0,0 +1,94 @@
+/*
+ * Tracing: systrace/Perfetto sections around the hot paths
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.Trace;
+import android.preference.PreferenceManager;
+
+/*
+ * Thin wrapper around android.os.Trace.  Every call is a single static field
+ * test when tracing is off, so the sections can stay in release builds.
+ *
+ * Tracing is on for debuggable builds, or when "trace_enabled" is checked in
+ * Settings.  Capture with e.g.:
+ *
+ *   python systrace.py -a app.easytoken -o trace.html
+ *
+ * Section names must not contain token serials, PINs or codes.
+ */
+public class Tracing {
+
+	public static final String PREF_KEY = "trace_enabled";
+
+	/* async slice cookies; only need to be unique among slices with the same name */
+	public static final int COOKIE_IMPORT = 1;
+
+	private static boolean sEnabled;
+	private static final boolean sHasAsync = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+	public static void init(Context context) {
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+		setEnabled(isDebuggable(context) || prefs.getBoolean(PREF_KEY, false));
+	}
+
+	public static boolean isDebuggable(Context context) {
+		return (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+	}
+
+	/*
+	 * Flipping this while a section is open can leave a stray begin or end in
+	 * the trace; that only costs one mangled slice, so it isn't worth a lock.
+	 */
+	public static void setEnabled(boolean val) {
+		sEnabled = val;
+	}
+
+	public static boolean isEnabled() {
+		return sEnabled;
+	}
+
+	/* always pair with end() in a finally block, on the same thread */
+	public static void begin(String name) {
+		if (sEnabled) {
+			Trace.beginSection(name);
+		}
+	}
+
+	public static void end() {
+		if (sEnabled) {
+			Trace.endSection();
+		}
+	}
+
+	/* async slices may start and finish on different threads; API 29+ only */
+	public static void beginAsync(String name, int cookie) {
+		if (sEnabled && sHasAsync) {
+			Trace.beginAsyncSection(name, cookie);
+		}
+	}
+
+	public static void endAsync(String name, int cookie) {
+		if (sEnabled && sHasAsync) {
+			Trace.endAsyncSection(name, cookie);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Fixtures: loads the benchmark token corpus
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/* see fixtures/README.txt for the file format */
+public class Fixtures {
+
+	public static final String DIR_PROPERTY = "easytoken.fixtures";
+
+	public static class Fixture {
+		public String name;
+		public String token;
+		public String pass;
+		public String devid;
+		public String pin;
+	}
+
+	public static Fixture load(String name) throws IOException {
+		String dir = System.getProperty(DIR_PROPERTY, "fixtures");
+		File f = new File(dir, name + ".tok");
+		if (!f.isFile()) {
+			throw new IOException("missing benchmark fixture " + f.getAbsolutePath() +
+					"; see benchmark/fixtures/README.txt");
+		}
+
+		Properties p = new Properties();
+		InputStream in = new FileInputStream(f);
+		try {
+			p.load(in);
+		} finally {
+			in.close();
+		}
+
+		Fixture fx = new Fixture();
+		fx.name = name;
+		fx.token = p.getProperty("token", "").trim();
+		fx.pass = p.getProperty("pass", "");
+		fx.devid = p.getProperty("devid", "");
+		fx.pin = p.getProperty("pin", "");
+		if (fx.token.isEmpty()) {
+			throw new IOException(f + " has no token= line");
+		}
+		return fx;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * RepositoryBenchmarks: loading every stored token into a fresh cache
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import app.easytoken.core.MemoryTokenStore;
+import app.easytoken.core.TokenClock;
+import app.easytoken.core.TokencodeCache;
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * What happens when the token list (or the provider) first comes up: every
+ * token is parsed, decrypted and has its first two codes computed.  The store
+ * holds N copies of the fixture under different serials.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryBenchmarks {
+
+	@Param({"v2"})
+	public String fixture;
+
+	@Param({"10"})
+	public int tokens;
+
+	private MemoryTokenStore mStore;
+	private String mSerials[];
+	private long mNow;
+
+	@Setup
+	public void setup() throws Exception {
+		Fixtures.Fixture fx = Fixtures.load(fixture);
+		SecurIdToken t = SecurIdToken.Companion.importString(fx.token, false);
+		t.decryptSeed(fx.pass, fx.devid);
+		String encoded = t.encodeToken("", "", 2);
+
+		mStore = new MemoryTokenStore();
+		mSerials = new String[tokens];
+		for (int i = 0; i < tokens; i++) {
+			mSerials[i] = String.format("%012d", i);
+			mStore.put(mSerials[i], encoded, fx.pin, fixture);
+		}
+		mNow = System.currentTimeMillis();
+	}
+
+	@Benchmark
+	public TokencodeCache loadAll() {
+		TokencodeCache cache = new TokencodeCache(mStore, TokenClock.SYSTEM);
+		for (String serial : mSerials) {
+			cache.get(serial, mNow);
+		}
+		return cache;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * TickBenchmarks: per-second UI and widget update paths
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import app.easytoken.core.MemoryTokenStore;
+import app.easytoken.core.TokenClock;
+import app.easytoken.core.TokencodeCache;
+import app.easytoken.core.TokencodeFormat;
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * What the token list and the widget do once per second: look up the current
+ * code (almost always a cache hit) and format it for display.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TickBenchmarks {
+
+	@Param({"v2", "v3"})
+	public String fixture;
+
+	private MemoryTokenStore mStore;
+	private TokencodeCache mCache;
+	private String mSerial;
+	private long mNow;
+	private final char mBuf[] = new char[32];
+
+	@Setup
+	public void setup() throws Exception {
+		Fixtures.Fixture fx = Fixtures.load(fixture);
+		SecurIdToken t = SecurIdToken.Companion.importString(fx.token, false);
+		t.decryptSeed(fx.pass, fx.devid);
+
+		// the store holds re-encoded, decrypted tokens, just like the app's
+		mSerial = t.getSerial();
+		mStore = new MemoryTokenStore();
+		mStore.put(mSerial, t.encodeToken("", "", 2), fx.pin, fixture);
+		mCache = new TokencodeCache(mStore, TokenClock.SYSTEM);
+
+		mNow = System.currentTimeMillis();
+		mCache.get(mSerial, mNow);
+	}
+
+	@Benchmark
+	public TokencodeCache.Code cacheHit() {
+		return mCache.get(mSerial, mNow);
+	}
+
+	/*
+	 * Advances the clock 30s per call, so most calls cross a boundary.  The next
+	 * code is already cached; the one after it may not have been refilled yet.
+	 */
+	@Benchmark
+	public TokencodeCache.Code cacheRollover() {
+		mNow += 30 * 1000;
+		return mCache.get(mSerial, mNow);
+	}
+
+	@Benchmark
+	public String listTick() {
+		TokencodeCache.Code c = mCache.get(mSerial, mNow);
+		return TokencodeFormat.format(c.code);
+	}
+
+	@Benchmark
+	public int listTickNoAlloc() {
+		TokencodeCache.Code c = mCache.get(mSerial, mNow);
+		return TokencodeFormat.format(c.code, mBuf);
+	}
+
+	/* the widget shows the formatted code plus a progress bar */
+	@Benchmark
+	public String widgetRender() {
+		TokencodeCache.Code c = mCache.get(mSerial, mNow);
+		int progress = (c.secondsLeft - 1) * 100 / (c.interval - 1);
+		return TokencodeFormat.format(c.code) + progress;
+	}
+}
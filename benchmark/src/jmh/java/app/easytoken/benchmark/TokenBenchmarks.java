@@ -0,0 +1,81 @@
+/*
+ * TokenBenchmarks: cost of the stokenjava operations
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * importString() is measured on its own so it can be subtracted from
+ * decryptSeed(), which has to start from a freshly imported token each time.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenBenchmarks {
+
+	@Param({"v2", "v2-pin", "v3", "v3-protected", "30s"})
+	public String fixture;
+
+	private Fixtures.Fixture mFixture;
+	private SecurIdToken mDecrypted;
+	private String mPin;
+	private int mInterval;
+	private long mTime;
+
+	@Setup
+	public void setup() throws Exception {
+		mFixture = Fixtures.load(fixture);
+		mDecrypted = SecurIdToken.Companion.importString(mFixture.token, false);
+		mDecrypted.decryptSeed(mFixture.pass, mFixture.devid);
+		mPin = mFixture.pin.isEmpty() ? "0000" : mFixture.pin;
+		mInterval = mDecrypted.tokenInterval();
+		mTime = System.currentTimeMillis() / 1000;
+	}
+
+	@Benchmark
+	public SecurIdToken importString() throws Exception {
+		return SecurIdToken.Companion.importString(mFixture.token, false);
+	}
+
+	@Benchmark
+	public SecurIdToken importAndDecrypt() throws Exception {
+		SecurIdToken t = SecurIdToken.Companion.importString(mFixture.token, false);
+		t.decryptSeed(mFixture.pass, mFixture.devid);
+		return t;
+	}
+
+	@Benchmark
+	public String computeTokenCode() {
+		// step through intervals so nothing can be cached between calls
+		mTime += mInterval;
+		return mDecrypted.computeTokenCode(mTime, mPin);
+	}
+
+	@Benchmark
+	public String encodeToken() {
+		return mDecrypted.encodeToken("", "", 2);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * VerifierBenchmarks: tokencode verification against a drift window
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import app.easytoken.core.MemoryTokenStore;
+import app.easytoken.core.TokenClock;
+import app.easytoken.core.TokencodeVerifier;
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * The test server's verify endpoint, minus HTTP.  Single-threaded throughput
+ * here is the "verifications per second per core" figure; it should be in the
+ * millions, since a lookup is a hash probe once the window is built.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VerifierBenchmarks {
+
+	@Param({"v2", "v3"})
+	public String fixture;
+
+	@Param({"3", "10"})
+	public int window;
+
+	private TokencodeVerifier mVerifier;
+	private String mSerial;
+	private String mCode;
+	private long mNow;
+
+	@Setup
+	public void setup() throws Exception {
+		Fixtures.Fixture fx = Fixtures.load(fixture);
+		SecurIdToken t = SecurIdToken.Companion.importString(fx.token, false);
+		t.decryptSeed(fx.pass, fx.devid);
+
+		mSerial = t.getSerial();
+		MemoryTokenStore store = new MemoryTokenStore();
+		store.put(mSerial, t.encodeToken("", "", 2), fx.pin, fixture);
+		mVerifier = new TokencodeVerifier(store, TokenClock.SYSTEM, window);
+
+		mNow = System.currentTimeMillis();
+		String pin = fx.pin.isEmpty() ? "0000" : fx.pin;
+		mCode = t.computeTokenCode(TokenClock.intervalStart(mNow / 1000, t.tokenInterval()), pin);
+		mVerifier.verify(mSerial, mCode, null, mNow);
+	}
+
+	@Benchmark
+	public TokencodeVerifier.Result verifyCurrent() {
+		return mVerifier.verify(mSerial, mCode, null, mNow);
+	}
+
+	@Benchmark
+	public TokencodeVerifier.Result verifyWrong() {
+		return mVerifier.verify(mSerial, "00000000", null, mNow);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * RangeGenerator: computes tokencodes for a time range in parallel chunks
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import app.easytoken.core.TokenClock;
+import app.easytoken.core.TokenStore;
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * A range is cut into chunks of CHUNK intervals, which are formatted on the
+ * pool and written out in order.  At most WINDOW chunks are pending at a time,
+ * so memory use depends on the chunk size and thread count, not on the length
+ * of the range; a year of 30-second codes streams out like a minute of them.
+ *
+ * SecurIdToken isn't thread-safe, so each worker decodes its own copy of a
+ * token the first time it sees it.
+ */
+class RangeGenerator {
+
+	public static final int FORMAT_CSV = 0;
+	public static final int FORMAT_JSONL = 1;
+
+	private final TokenStore mStore;
+	private final ExecutorService mPool;
+	private final int mFormat;
+	private final int mChunk;
+	private final int mWindow;
+
+	private final ThreadLocal<HashMap<String, SecurIdToken>> mTokens =
+			new ThreadLocal<HashMap<String, SecurIdToken>>() {
+		@Override
+		protected HashMap<String, SecurIdToken> initialValue() {
+			return new HashMap<>();
+		}
+	};
+
+	RangeGenerator(TokenStore store, ExecutorService pool, int threads, int format, int chunk) {
+		mStore = store;
+		mPool = pool;
+		mFormat = format;
+		mChunk = chunk;
+		mWindow = threads * 2;
+	}
+
+	void writeHeader(Writer out) throws IOException {
+		if (mFormat == FORMAT_CSV) {
+			out.write("serial,time,time_iso,code\n");
+		}
+	}
+
+	/* every code of SERIAL for the intervals overlapping FROM..TO (unix seconds), oldest first */
+	void generate(final String serial, final int interval, final String pin, long from, long to,
+			Writer out) throws IOException, InterruptedException {
+		long first = TokenClock.intervalStart(from, interval);
+		long last = TokenClock.intervalStart(to, interval);
+		long step = (long) mChunk * interval;
+		ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+
+		for (long t = first; t <= last; t += step) {
+			final long start = t;
+			final long end = Math.min(last, t + step - interval);
+			if (pending.size() >= mWindow) {
+				out.write(take(pending));
+			}
+			pending.add(mPool.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return formatChunk(serial, interval, pin, start, end);
+				}
+			}));
+		}
+		while (!pending.isEmpty()) {
+			out.write(take(pending));
+		}
+	}
+
+	private static String take(ArrayDeque<Future<String>> pending) throws IOException, InterruptedException {
+		try {
+			return pending.poll().get();
+		} catch (ExecutionException e) {
+			for (Future<String> f : pending) {
+				f.cancel(true);
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private SecurIdToken token(String serial) throws Exception {
+		HashMap<String, SecurIdToken> tokens = mTokens.get();
+		SecurIdToken token = tokens.get(serial);
+		if (token == null) {
+			token = SecurIdToken.Companion.importString(mStore.getTokenString(serial), false);
+			token.decryptSeed("", "");
+			tokens.put(serial, token);
+		}
+		return token;
+	}
+
+	private String formatChunk(String serial, int interval, String pin, long start, long end) throws Exception {
+		SecurIdToken token = token(serial);
+		StringBuilder sb = new StringBuilder((int) ((end - start) / interval + 1) * 64);
+
+		for (long t = start; t <= end; t += interval) {
+			String code = token.computeTokenCode(t, pin);
+			String iso = Instant.ofEpochSecond(t).toString();
+			if (mFormat == FORMAT_CSV) {
+				sb.append(serial).append(',').append(t).append(',').append(iso)
+					.append(',').append(code).append('\n');
+			} else {
+				sb.append("{\"serial\": \"").append(serial)
+					.append("\", \"time\": ").append(t)
+					.append(", \"time_iso\": \"").append(iso)
+					.append("\", \"code\": \"").append(code).append("\"}\n");
+			}
+		}
+		return sb.toString();
+	}
+}
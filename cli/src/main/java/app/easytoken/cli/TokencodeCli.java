@@ -0,0 +1,238 @@
+/*
+ * TokencodeCli: batch tokencode generator
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.cli;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import app.easytoken.core.CodeTable;
+import app.easytoken.core.CodeTableWriter;
+import app.easytoken.core.MemoryTokenStore;
+import app.easytoken.core.TokenFileLoader;
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * Inputs are sdtid files, files of CTF strings or URIs (one per line), or a copy
+ * of the app's shared_prefs/app.easytoken_preferences.xml.  Times are unix
+ * seconds or ISO-8601 instants ("2024-01-01T00:00:00Z").
+ *
+ *   tokencode [--at TIME | --from TIME --to TIME] [--format csv|jsonl]
+ *             [--serial SN]... [--password PASS] [--devid ID] [--pin PIN]
+ *             [--threads N] [--chunk N] [--out FILE] FILE...
+ *
+ * With no time given, the current interval is printed.
+ *
+ *   tokencode --table OUT --from TIME --to TIME [--serial SN] [--verify N] ...
+ *
+ * writes one token's codes as a packed CodeTable instead, then spot-checks N
+ * (default 64) random entries of the result against computeTokenCode().
+ */
+public class TokencodeCli {
+
+	private static final int DEFAULT_CHUNK = 1024;
+	private static final int DEFAULT_VERIFY = 64;
+
+	private static void usage() {
+		System.err.println("usage: tokencode [--at TIME | --from TIME --to TIME] [--format csv|jsonl]");
+		System.err.println("                 [--serial SN]... [--password PASS] [--devid ID] [--pin PIN]");
+		System.err.println("                 [--threads N] [--chunk N] [--out FILE] FILE...");
+		System.err.println("       tokencode --table OUT --from TIME --to TIME [--serial SN] [--verify N]");
+		System.err.println("                 [--password PASS] [--devid ID] [--pin PIN] [--threads N] FILE...");
+		System.exit(1);
+	}
+
+	private static long parseTime(String s) {
+		try {
+			return Long.parseLong(s);
+		} catch (NumberFormatException e) {
+			return Instant.parse(s).getEpochSecond();
+		}
+	}
+
+	private static int writeTable(MemoryTokenStore store, ArrayList<String> serials, int threads,
+			long from, long to, String tableFile, int verify) throws Exception {
+		if (serials.size() != 1) {
+			System.err.println("a table holds one token; pick one with --serial");
+			return 1;
+		}
+		String serial = serials.get(0);
+		String s = store.getTokenString(serial);
+		if (s == null) {
+			System.err.println(serial + ": no such token");
+			return 1;
+		}
+
+		SecurIdToken token = SecurIdToken.Companion.importString(s, false);
+		token.decryptSeed("", "");
+		String pin = store.getPin(serial);
+		if (token.pinRequired() && (pin == null || pin.isEmpty())) {
+			System.err.println(serial + ": token requires a PIN; use --pin");
+			return 1;
+		}
+
+		CodeTableWriter w = new CodeTableWriter(s, pin);
+		w.setThreads(threads);
+		File out = new File(tableFile);
+		long t0 = System.nanoTime();
+		w.write(out, from, to);
+		long ms = (System.nanoTime() - t0) / 1000000;
+
+		int bad = w.verify(out, verify);
+		try (CodeTable table = CodeTable.open(out)) {
+			System.err.println(serial + ": " + (table.getEnd() - table.getStart()) / table.getInterval()
+					+ " codes, " + Instant.ofEpochSecond(table.getStart()) + " .. "
+					+ Instant.ofEpochSecond(table.getEnd()) + ", " + out.length() + " bytes, "
+					+ ms + " ms");
+		}
+		if (bad != 0) {
+			System.err.println(serial + ": " + bad + " of " + (verify + 2) + " sampled codes do not match");
+			return 1;
+		}
+		return 0;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Long at = null, from = null, to = null;
+		int format = RangeGenerator.FORMAT_CSV;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int chunk = DEFAULT_CHUNK;
+		int verify = DEFAULT_VERIFY;
+		String pass = null, devid = null, pin = null, outFile = null, tableFile = null;
+		ArrayList<String> serials = new ArrayList<>();
+		ArrayList<String> files = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String a = args[i];
+				if (a.equals("--at")) {
+					at = parseTime(args[++i]);
+				} else if (a.equals("--from")) {
+					from = parseTime(args[++i]);
+				} else if (a.equals("--to")) {
+					to = parseTime(args[++i]);
+				} else if (a.equals("--format")) {
+					String f = args[++i];
+					if (f.equals("csv")) {
+						format = RangeGenerator.FORMAT_CSV;
+					} else if (f.equals("jsonl")) {
+						format = RangeGenerator.FORMAT_JSONL;
+					} else {
+						usage();
+					}
+				} else if (a.equals("--serial")) {
+					serials.add(args[++i]);
+				} else if (a.equals("--password")) {
+					pass = args[++i];
+				} else if (a.equals("--devid")) {
+					devid = args[++i];
+				} else if (a.equals("--pin")) {
+					pin = args[++i];
+				} else if (a.equals("--threads")) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (a.equals("--chunk")) {
+					chunk = Integer.parseInt(args[++i]);
+				} else if (a.equals("--out")) {
+					outFile = args[++i];
+				} else if (a.equals("--table")) {
+					tableFile = args[++i];
+				} else if (a.equals("--verify")) {
+					verify = Integer.parseInt(args[++i]);
+				} else if (a.startsWith("-")) {
+					usage();
+				} else {
+					files.add(a);
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException | DateTimeParseException e) {
+			usage();
+		}
+		if (files.isEmpty() || threads < 1 || chunk < 1 || verify < 0 || (from == null) != (to == null)
+				|| (at != null && from != null) || (tableFile != null && from == null)) {
+			usage();
+		}
+		if (from == null) {
+			from = to = (at != null) ? at : System.currentTimeMillis() / 1000;
+		}
+		if (to < from) {
+			usage();
+		}
+
+		MemoryTokenStore store = new MemoryTokenStore();
+		TokenFileLoader loader = new TokenFileLoader(store, pass, devid, pin);
+		loader.setLog(System.err);
+		for (String f : files) {
+			loader.load(new File(f));
+		}
+		if (serials.isEmpty()) {
+			serials.addAll(store.getSerials());
+		}
+		if (tableFile != null) {
+			System.exit(writeTable(store, serials, threads, from, to, tableFile, verify));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		OutputStream os = outFile != null ? new FileOutputStream(outFile) : System.out;
+		Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 65536);
+		int status = 0;
+		try {
+			RangeGenerator gen = new RangeGenerator(store, pool, threads, format, chunk);
+			gen.writeHeader(out);
+
+			for (String serial : serials) {
+				String s = store.getTokenString(serial);
+				if (s == null) {
+					System.err.println(serial + ": no such token");
+					status = 1;
+					continue;
+				}
+
+				SecurIdToken token = SecurIdToken.Companion.importString(s, false);
+				token.decryptSeed("", "");
+				String p = store.getPin(serial);
+				if (p == null || p.isEmpty()) {
+					if (token.pinRequired()) {
+						System.err.println(serial + ": token requires a PIN; use --pin");
+						status = 1;
+						continue;
+					}
+					p = "0000";
+				}
+
+				gen.generate(serial, token.tokenInterval(), p, from, to, out);
+			}
+		} finally {
+			out.flush();
+			if (outFile != null) {
+				out.close();
+			}
+			pool.shutdownNow();
+		}
+		System.exit(status);
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * CodeTable: memory-mapped table of precomputed tokencodes
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * For devices that may spend days without network time: one token's codes for
+ * a fixed range, computed ahead of time by CodeTableWriter.
+ *
+ * Layout (big-endian):
+ *
+ *   0   magic "ETCT"
+ *   4   u16 version (1)
+ *   6   u8  digits per code
+ *   7   u8  reserved
+ *   8   s32 interval, in seconds
+ *   12  s64 first interval number (unix time / interval)
+ *   20  s32 count
+ *   24  16 bytes serial, ASCII, NUL padded
+ *   40  s32 codes[count], code of interval (first + i) at 40 + 4 * i
+ *
+ * A lookup is a bounds check and one 4-byte read from the mapping.
+ */
+public class CodeTable implements Closeable {
+
+	static final int MAGIC = 0x45544354;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 40;
+	static final int SERIAL_SIZE = 16;
+
+	private final RandomAccessFile mFile;
+	private final MappedByteBuffer mBuf;
+	private final int mDigits;
+	private final int mInterval;
+	private final long mFirst;
+	private final int mCount;
+	private final String mSerial;
+
+	private CodeTable(RandomAccessFile f, MappedByteBuffer buf) throws IOException {
+		mFile = f;
+		mBuf = buf;
+
+		if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+			throw new IOException("not a code table");
+		}
+		if ((buf.getShort(4) & 0xffff) != VERSION) {
+			throw new IOException("unsupported code table version " + (buf.getShort(4) & 0xffff));
+		}
+		mDigits = buf.get(6) & 0xff;
+		mInterval = buf.getInt(8);
+		mFirst = buf.getLong(12);
+		mCount = buf.getInt(20);
+		if (mInterval <= 0 || mCount < 0 || mDigits == 0 || mDigits > 9
+				|| buf.capacity() < HEADER_SIZE + 4L * mCount) {
+			throw new IOException("corrupt code table");
+		}
+
+		byte serial[] = new byte[SERIAL_SIZE];
+		int len = 0;
+		for (; len < SERIAL_SIZE && buf.get(24 + len) != 0; len++) {
+			serial[len] = buf.get(24 + len);
+		}
+		mSerial = new String(serial, 0, len, StandardCharsets.US_ASCII);
+	}
+
+	public static CodeTable open(File file) throws IOException {
+		RandomAccessFile f = new RandomAccessFile(file, "r");
+		try {
+			MappedByteBuffer buf = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+			return new CodeTable(f, buf);
+		} catch (IOException | RuntimeException e) {
+			f.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// the mapping itself goes away when it is garbage collected
+		mFile.close();
+	}
+
+	public String getSerial() {
+		return mSerial;
+	}
+
+	public int getInterval() {
+		return mInterval;
+	}
+
+	public int getDigits() {
+		return mDigits;
+	}
+
+	/* covered range in unix seconds: [getStart(), getEnd()) */
+	public long getStart() {
+		return mFirst * mInterval;
+	}
+
+	public long getEnd() {
+		return (mFirst + mCount) * mInterval;
+	}
+
+	/* the code for unix time T as a number, or -1 if T is outside the table */
+	public int getInt(long t) {
+		long i = Math.floorDiv(t, (long)mInterval) - mFirst;
+		if (i < 0 || i >= mCount) {
+			return -1;
+		}
+		return mBuf.getInt(HEADER_SIZE + 4 * (int)i);
+	}
+
+	/* zero-padded, like computeTokenCode() returns it; null if T is outside the table */
+	public String get(long t) {
+		int code = getInt(t);
+		if (code < 0) {
+			return null;
+		}
+		char out[] = new char[mDigits];
+		for (int i = mDigits - 1; i >= 0; i--) {
+			out[i] = (char)('0' + code % 10);
+			code /= 10;
+		}
+		return new String(out);
+	}
+
+	static void writeHeader(ByteBuffer b, int digits, int interval, long first, int count, String serial) {
+		b.putInt(0, MAGIC);
+		b.putShort(4, (short)VERSION);
+		b.put(6, (byte)digits);
+		b.put(7, (byte)0);
+		b.putInt(8, interval);
+		b.putLong(12, first);
+		b.putInt(20, count);
+		byte s[] = serial.getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i < SERIAL_SIZE; i++) {
+			b.put(24 + i, i < s.length ? s[i] : 0);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * CodeTableWriter: precomputes a token's codes into a CodeTable file
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * The range is split into chunks that are computed on a pool and written
+ * straight to their final offsets with positional writes, so chunks can finish
+ * in any order and only the chunks being worked on are held in memory.  Each
+ * worker decodes its own copy of the token; SecurIdToken isn't thread-safe.
+ *
+ * The table is built in OUT.tmp and renamed over OUT once complete, so a failed
+ * run never leaves a valid-looking header in front of partial data.
+ *
+ * A week of 30 second codes is 20160 intervals, or about 80 KB.
+ */
+public class CodeTableWriter {
+
+	static final int CHUNK = 4096;
+
+	private final String mTokenString;
+	private final String mPin;
+	private final boolean mHavePin;
+	private int mThreads = Runtime.getRuntime().availableProcessors();
+
+	private final ThreadLocal<SecurIdToken> mToken = new ThreadLocal<>();
+
+	/*
+	 * TOKENSTRING is a decrypted, re-encoded token, as kept in a TokenStore.
+	 * PIN may be null for tokens that don't need one; if the token does,
+	 * write() and verify() throw rather than compute codes for a made-up PIN.
+	 */
+	public CodeTableWriter(String tokenString, String pin) {
+		mTokenString = tokenString;
+		mHavePin = pin != null && !pin.isEmpty();
+		mPin = mHavePin ? pin : "0000";
+	}
+
+	public void setThreads(int threads) {
+		mThreads = threads;
+	}
+
+	private SecurIdToken token() throws IOException {
+		SecurIdToken t = mToken.get();
+		if (t == null) {
+			try {
+				t = SecurIdToken.Companion.importString(mTokenString, false);
+				t.decryptSeed("", "");
+			} catch (Exception e) {
+				throw new IOException("can't decode token: " + e.getMessage());
+			}
+			mToken.set(t);
+		}
+		return t;
+	}
+
+	/* everything below goes through these four, so tests can stand in for the token */
+	int tokenInterval() throws IOException {
+		return token().tokenInterval();
+	}
+
+	String tokenSerial() throws IOException {
+		return token().getSerial();
+	}
+
+	boolean pinRequired() throws IOException {
+		return token().pinRequired();
+	}
+
+	String computeTokenCode(long t) throws IOException {
+		return token().computeTokenCode(t, mPin);
+	}
+
+	private void checkPin() throws IOException {
+		if (!mHavePin && pinRequired()) {
+			throw new IOException("token requires a PIN");
+		}
+	}
+
+	private static int parseCode(String code) throws IOException {
+		if (code.isEmpty() || code.length() > 9) {
+			throw new IOException("unexpected tokencode length " + code.length());
+		}
+		int ret = 0;
+		for (int i = 0; i < code.length(); i++) {
+			char c = code.charAt(i);
+			if (c < '0' || c > '9') {
+				throw new IOException("tokencode is not numeric");
+			}
+			ret = ret * 10 + (c - '0');
+		}
+		return ret;
+	}
+
+	/* writes the codes of every interval overlapping FROM..TO (unix seconds) to OUT */
+	public void write(File out, long from, long to) throws IOException {
+		checkPin();
+		final int interval = tokenInterval();
+		String serial = tokenSerial();
+		if (serial.length() > CodeTable.SERIAL_SIZE) {
+			throw new IOException("serial number too long: " + serial);
+		}
+
+		final long first = Math.floorDiv(from, (long)interval);
+		long last = Math.floorDiv(to, (long)interval);
+		if (last < first) {
+			throw new IOException("empty range");
+		}
+		long count = last - first + 1;
+		if (CodeTable.HEADER_SIZE + 4 * count > Integer.MAX_VALUE) {
+			throw new IOException("range too long for one table");
+		}
+		int digits = computeTokenCode(first * interval).length();
+
+		File tmp = new File(out.getPath() + ".tmp");
+		boolean done = false;
+		ExecutorService pool = Executors.newFixedThreadPool(mThreads);
+		try (RandomAccessFile f = new RandomAccessFile(tmp, "rw")) {
+			final FileChannel ch = f.getChannel();
+			// a leftover .tmp may still hold an old header
+			f.setLength(0);
+			f.setLength(CodeTable.HEADER_SIZE + 4 * count);
+
+			ArrayList<Future<Void>> futures = new ArrayList<>();
+			for (long i = 0; i < count; i += CHUNK) {
+				final int start = (int)i;
+				final int len = (int)Math.min(CHUNK, count - i);
+				futures.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						writeChunk(ch, interval, first, start, len);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> fut : futures) {
+				fut.get();
+			}
+
+			ByteBuffer hdr = ByteBuffer.allocate(CodeTable.HEADER_SIZE);
+			CodeTable.writeHeader(hdr, digits, interval, first, (int)count, serial);
+			writeFully(ch, hdr, 0);
+			ch.force(false);
+			done = true;
+		} catch (InterruptedException e) {
+			throw new IOException("interrupted");
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException)e.getCause() : new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+			if (!done) {
+				tmp.delete();
+			}
+		}
+		Files.move(tmp.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void writeChunk(FileChannel ch, int interval, long first, int start, int len) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(4 * len);
+		for (int i = 0; i < len; i++) {
+			long t = (first + start + i) * interval;
+			buf.putInt(parseCode(computeTokenCode(t)));
+		}
+		buf.flip();
+		writeFully(ch, buf, CodeTable.HEADER_SIZE + 4L * start);
+	}
+
+	private static void writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining()) {
+			pos += ch.write(buf, pos);
+		}
+	}
+
+	/*
+	 * Spot-checks FILE against computeTokenCode(): the first and last entries
+	 * plus SAMPLES random ones.  Returns the number of mismatches.
+	 */
+	public int verify(File file, int samples) throws IOException {
+		checkPin();
+		int bad = 0;
+		try (CodeTable table = CodeTable.open(file)) {
+			long first = table.getStart() / table.getInterval();
+			long count = (table.getEnd() - table.getStart()) / table.getInterval();
+			if (count == 0) {
+				return 0;
+			}
+			Random rnd = new Random();
+			for (int i = 0; i < samples + 2; i++) {
+				long n;
+				if (i == 0) {
+					n = 0;
+				} else if (i == 1) {
+					n = count - 1;
+				} else {
+					n = (long)(rnd.nextDouble() * count);
+				}
+				long t = (first + n) * table.getInterval();
+				if (!computeTokenCode(t).equals(table.get(t))) {
+					bad++;
+				}
+			}
+		}
+		return bad;
+	}
+}
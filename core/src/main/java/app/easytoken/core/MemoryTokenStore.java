@@ -0,0 +1,80 @@
+/*
+ * MemoryTokenStore: TokenStore kept in a map, for tools and tests
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class MemoryTokenStore implements TokenStore {
+
+	private static class Item {
+		String tokenString;
+		String pin;
+		String name;
+	}
+
+	private final HashMap<String, Item> mItems = new HashMap<>();
+	private final LinkedHashSet<String> mSerials = new LinkedHashSet<>();
+	private long mLastModified;
+
+	public synchronized void put(String serial, String tokenString, String pin, String name) {
+		Item i = new Item();
+		i.tokenString = tokenString;
+		i.pin = pin;
+		i.name = name;
+		mItems.put(serial, i);
+		mSerials.add(serial);
+		mLastModified++;
+	}
+
+	public synchronized void remove(String serial) {
+		mItems.remove(serial);
+		mSerials.remove(serial);
+		mLastModified++;
+	}
+
+	@Override
+	public synchronized Set<String> getSerials() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(mSerials));
+	}
+
+	@Override
+	public synchronized String getTokenString(String serial) {
+		Item i = mItems.get(serial);
+		return i == null ? null : i.tokenString;
+	}
+
+	@Override
+	public synchronized String getPin(String serial) {
+		Item i = mItems.get(serial);
+		return i == null ? null : i.pin;
+	}
+
+	@Override
+	public synchronized String getName(String serial) {
+		Item i = mItems.get(serial);
+		return i == null ? null : i.name;
+	}
+
+	@Override
+	public synchronized long lastModified() {
+		return mLastModified;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * PerfCounters: process-wide performance counters and timers
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Cheap enough to leave on in release builds: a counter is one map lookup and an
+ * atomic add.  Timers keep a count, a total and a maximum.  Values are in
+ * nanoseconds for timers, plain numbers otherwise.
+ */
+public class PerfCounters {
+
+	/* counters */
+	public static final String TOKENCODE_COMPUTE = "tokencode.compute";
+	public static final String CACHE_HIT = "cache.hit";
+	public static final String CACHE_MISS = "cache.miss";
+	public static final String WIDGET_UPDATE = "widget.update";
+	public static final String TICK_WAKEUP = "tick.wakeup";
+
+	/* timers */
+	public static final String TOKEN_DECODE = "token.decode";
+	public static final String COLD_START_APP = "start.app_oncreate";
+	public static final String COLD_START_FIRST_ACTIVITY = "start.first_activity";
+
+	private static class Timer {
+		final AtomicLong count = new AtomicLong();
+		final AtomicLong totalNs = new AtomicLong();
+		final AtomicLong maxNs = new AtomicLong();
+	}
+
+	private static final ConcurrentHashMap<String, AtomicLong> sCounters = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, Timer> sTimers = new ConcurrentHashMap<>();
+	private static final long sStartNs = System.nanoTime();
+
+	private static AtomicLong counter(String name) {
+		AtomicLong c = sCounters.get(name);
+		if (c == null) {
+			AtomicLong n = new AtomicLong();
+			c = sCounters.putIfAbsent(name, n);
+			if (c == null) {
+				c = n;
+			}
+		}
+		return c;
+	}
+
+	private static Timer timer(String name) {
+		Timer t = sTimers.get(name);
+		if (t == null) {
+			Timer n = new Timer();
+			t = sTimers.putIfAbsent(name, n);
+			if (t == null) {
+				t = n;
+			}
+		}
+		return t;
+	}
+
+	public static void increment(String name) {
+		counter(name).incrementAndGet();
+	}
+
+	public static void add(String name, long delta) {
+		counter(name).addAndGet(delta);
+	}
+
+	/* gauges: values that are sampled rather than accumulated */
+	public static void set(String name, long value) {
+		counter(name).set(value);
+	}
+
+	public static void recordTime(String name, long ns) {
+		Timer t = timer(name);
+		t.count.incrementAndGet();
+		t.totalNs.addAndGet(ns);
+		long max;
+		do {
+			max = t.maxNs.get();
+		} while (ns > max && !t.maxNs.compareAndSet(max, ns));
+	}
+
+	/* for timers started with System.nanoTime() */
+	public static void recordSince(String name, long startNs) {
+		recordTime(name, System.nanoTime() - startNs);
+	}
+
+	public static void reset() {
+		sCounters.clear();
+		sTimers.clear();
+	}
+
+	/* flat, sorted view: counters as-is, timers as NAME.count/.total_ns/.max_ns */
+	public static Map<String, Long> snapshot() {
+		TreeMap<String, Long> ret = new TreeMap<>();
+		for (Map.Entry<String, AtomicLong> e : sCounters.entrySet()) {
+			ret.put(e.getKey(), e.getValue().get());
+		}
+		for (Map.Entry<String, Timer> e : sTimers.entrySet()) {
+			Timer t = e.getValue();
+			ret.put(e.getKey() + ".count", t.count.get());
+			ret.put(e.getKey() + ".total_ns", t.totalNs.get());
+			ret.put(e.getKey() + ".max_ns", t.maxNs.get());
+		}
+		ret.put("uptime_ms", (System.nanoTime() - sStartNs) / 1000000);
+		return ret;
+	}
+
+	public static String toJson() {
+		StringBuilder sb = new StringBuilder("{\n");
+		boolean first = true;
+		for (Map.Entry<String, Long> e : snapshot().entrySet()) {
+			if (!first) {
+				sb.append(",\n");
+			}
+			first = false;
+			// names are ours and never need escaping
+			sb.append("  \"").append(e.getKey()).append("\": ").append(e.getValue());
+		}
+		return sb.append("\n}\n").toString();
+	}
+
+	public static void dump(PrintWriter pw) {
+		for (Map.Entry<String, Long> e : snapshot().entrySet()) {
+			pw.print(e.getKey());
+			pw.print(": ");
+			pw.println(e.getValue());
+		}
+	}
+}
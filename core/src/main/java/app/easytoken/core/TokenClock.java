@@ -0,0 +1,59 @@
+/*
+ * TokenClock: time source and tokencode interval math
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+/*
+ * Tokencodes change on 30 or 60 second boundaries of the Unix epoch.  All of the
+ * interval math lives here so the UI, the widget and the provider agree, and so
+ * tests can substitute a fixed clock.
+ */
+public abstract class TokenClock {
+
+	public static final TokenClock SYSTEM = new TokenClock() {
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	};
+
+	public abstract long currentTimeMillis();
+
+	public long currentTimeSeconds() {
+		return currentTimeMillis() / 1000;
+	}
+
+	/* start of the interval containing T (both in seconds) */
+	public static long intervalStart(long t, int interval) {
+		return t - Math.floorMod(t, (long)interval);
+	}
+
+	/* ranges from 1..INTERVAL */
+	public static int secondsLeft(long t, int interval) {
+		return interval - (int)Math.floorMod(t, (long)interval);
+	}
+
+	/* a clock that always returns the same time; handy for tests and tools */
+	public static TokenClock fixed(final long millis) {
+		return new TokenClock() {
+			@Override
+			public long currentTimeMillis() {
+				return millis;
+			}
+		};
+	}
+}
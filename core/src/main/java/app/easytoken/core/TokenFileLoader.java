@@ -0,0 +1,163 @@
+/*
+ * TokenFileLoader: reads token files into a TokenStore for the JVM tools
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * Accepts whatever TokenStreamReader does (sdtid files, or one CTF string or URI
+ * per line).  Each token is decrypted with the given password and device ID and
+ * stored re-encoded without them, the same way the app stores imported tokens,
+ * so a TokencodeCache can be put on top of the result.
+ *
+ * load(File) also takes the app's own store, i.e. a copy of
+ * shared_prefs/app.easytoken_preferences.xml; those tokens are already
+ * decrypted and bring their own names and saved PINs.
+ */
+public class TokenFileLoader {
+
+	/* keys written by TokenInfo */
+	private static final String PREF_TOKEN = "token_str_";
+	private static final String PREF_PIN = "token_pin_";
+	private static final String PREF_NAME = "token_name_";
+
+	private static final int PEEK = 4096;
+
+	private final MemoryTokenStore mStore;
+	private final String mPass;
+	private final String mDevId;
+	private final String mPin;
+	private PrintStream mLog;
+	private int mSkipped;
+
+	/* PASS, DEVID and PIN may be null; PIN is applied to every token loaded */
+	public TokenFileLoader(MemoryTokenStore store, String pass, String devid, String pin) {
+		mStore = store;
+		mPass = pass != null ? pass : "";
+		mDevId = devid != null ? devid : "";
+		mPin = pin;
+	}
+
+	/* where to complain about tokens that can't be loaded; default is silence */
+	public void setLog(PrintStream log) {
+		mLog = log;
+	}
+
+	public int getSkipped() {
+		return mSkipped;
+	}
+
+	/* returns the number of tokens added */
+	public int load(File f) throws IOException {
+		try (BufferedReader r = new BufferedReader(
+				new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
+			if (isPrefsFile(r)) {
+				return loadPrefs(r, f.getName());
+			}
+			return load(r, f.getName());
+		}
+	}
+
+	/* SharedPreferences files have a <map> root; sdtid files have <TKNBatch> */
+	private static boolean isPrefsFile(BufferedReader r) throws IOException {
+		char buf[] = new char[PEEK];
+		r.mark(PEEK);
+		int len = r.read(buf, 0, PEEK);
+		r.reset();
+		if (len <= 0) {
+			return false;
+		}
+		String head = new String(buf, 0, len);
+		return head.contains("<map") && !head.contains("<TKN");
+	}
+
+	private int loadPrefs(Reader r, String source) throws IOException {
+		Element root;
+		try {
+			DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			root = db.parse(new InputSource(r)).getDocumentElement();
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new IOException(source + ": " + e.getMessage());
+		}
+
+		HashMap<String, String> strings = new HashMap<>();
+		NodeList nodes = root.getElementsByTagName("string");
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Element e = (Element) nodes.item(i);
+			strings.put(e.getAttribute("name"), e.getTextContent());
+		}
+
+		int added = 0;
+		for (Map.Entry<String, String> e : strings.entrySet()) {
+			if (!e.getKey().startsWith(PREF_TOKEN)) {
+				continue;
+			}
+			String serial = e.getKey().substring(PREF_TOKEN.length());
+			String pin = strings.get(PREF_PIN + serial);
+			String name = strings.get(PREF_NAME + serial);
+			mStore.put(serial, e.getValue(), pin != null ? pin : mPin, name != null ? name : serial);
+			added++;
+		}
+		return added;
+	}
+
+	public int load(Reader r, String source) throws IOException {
+		int added = 0;
+		int n = 0;
+		TokenStreamReader reader = new TokenStreamReader(r);
+		String s;
+		while ((s = reader.next()) != null) {
+			n++;
+			SecurIdToken token;
+			try {
+				token = SecurIdToken.Companion.importString(s, false);
+				token.decryptSeed(mPass, mDevId);
+			} catch (Exception e) {
+				mSkipped++;
+				if (mLog != null) {
+					mLog.println(source + ": token #" + n + ": " + e);
+				}
+				continue;
+			}
+			String serial = token.getSerial();
+			mStore.put(serial, token.encodeToken("", "", 2), mPin, serial);
+			added++;
+		}
+		return added;
+	}
+}
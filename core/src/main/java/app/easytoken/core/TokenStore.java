@@ -0,0 +1,42 @@
+/*
+ * TokenStore: where token strings, PINs and names are kept
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.util.Set;
+
+/*
+ * Tokens are identified by serial number.  The token string is the re-encoded,
+ * already-decrypted form written at import time, so importString() followed by
+ * decryptSeed("", "") is enough to use it.
+ */
+public interface TokenStore {
+
+	public Set<String> getSerials();
+
+	/* all of these return null if the serial (or the field) doesn't exist */
+	public String getTokenString(String serial);
+	public String getPin(String serial);
+	public String getName(String serial);
+
+	/*
+	 * Changes whenever anything in the store changes; used to invalidate caches.
+	 * Writers change it only once the new data is readable, and caches read it
+	 * before loading, so a load that races a write is at worst redone.
+	 */
+	public long lastModified();
+}
@@ -0,0 +1,237 @@
+/*
+ * TokenStreamReader: splits a token file into individual token strings
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/*
+ * Two kinds of input are understood:
+ *
+ * - sdtid XML.  A <TKNBatch> may hold any number of <TKN> elements sharing one
+ *   <TKNHeader>.  Each token is returned as a standalone sdtid document made of
+ *   the original prefix (XML declaration, <TKNBatch>, <TKNHeader>), the <TKN>
+ *   element, and whatever follows it up to the next <TKN> (e.g. <TKNTrailer>),
+ *   all copied verbatim so the MACs still verify.  A file holding a single token
+ *   therefore comes back unchanged.
+ *
+ * - Anything else is treated as one token string (CTF or URI) per line.
+ *
+ * The input is consumed in fixed-size chunks, and only the header plus the token
+ * currently being assembled are kept in memory.
+ */
+public class TokenStreamReader implements Closeable {
+
+	public static final String TAG = "EasyToken";
+
+	private static final int CHUNK = 8192;
+
+	/* no single token (or the sdtid header) should ever come close to this */
+	private static final int MAX_UNIT = 1024 * 1024;
+
+	private static final String TKN_OPEN = "<TKN";
+	private static final String TKN_CLOSE = "</TKN>";
+	private static final String BATCH_CLOSE = "</TKNBatch>";
+
+	private static final int MODE_UNKNOWN = 0;
+	private static final int MODE_XML = 1;
+	private static final int MODE_LINES = 2;
+
+	private final Reader mReader;
+	private final char[] mChunk = new char[CHUNK];
+	private final StringBuilder mBuf = new StringBuilder();
+	private boolean mEof;
+	private int mMode = MODE_UNKNOWN;
+
+	/* XML mode: everything before the first <TKN> */
+	private String mPrefix;
+
+	public TokenStreamReader(Reader reader) {
+		mReader = reader;
+	}
+
+	@Override
+	public void close() throws IOException {
+		mReader.close();
+	}
+
+	/* returns false at EOF */
+	private boolean fill() throws IOException {
+		if (mEof) {
+			return false;
+		}
+		int len = mReader.read(mChunk);
+		if (len == -1) {
+			mEof = true;
+			return false;
+		}
+		mBuf.append(mChunk, 0, len);
+		if (mBuf.length() > MAX_UNIT) {
+			throw new IOException("token data is too large");
+		}
+		return true;
+	}
+
+	/* returns the next token string, or null at the end of the input */
+	public String next() throws IOException {
+		if (mMode == MODE_UNKNOWN) {
+			detectMode();
+		}
+		if (mMode == MODE_XML) {
+			return nextXml();
+		}
+		return nextLine();
+	}
+
+	private void detectMode() throws IOException {
+		while (true) {
+			for (int i = 0; i < mBuf.length(); i++) {
+				char c = mBuf.charAt(i);
+				if (Character.isWhitespace(c) || c == '\uFEFF') {
+					continue;
+				}
+				mMode = (c == '<') ? MODE_XML : MODE_LINES;
+				return;
+			}
+			if (!fill()) {
+				mMode = MODE_LINES;
+				return;
+			}
+		}
+	}
+
+	private String nextLine() throws IOException {
+		int scanned = 0;
+		while (true) {
+			int nl = indexOfNewline(scanned);
+			if (nl < 0) {
+				scanned = mBuf.length();
+				if (fill()) {
+					continue;
+				}
+				if (mBuf.length() == 0) {
+					return null;
+				}
+				nl = mBuf.length();
+			}
+
+			String line = mBuf.substring(0, nl).trim();
+			mBuf.delete(0, Math.min(nl + 1, mBuf.length()));
+			scanned = 0;
+			if (!line.isEmpty()) {
+				return line;
+			}
+		}
+	}
+
+	private int indexOfNewline(int start) {
+		for (int i = start; i < mBuf.length(); i++) {
+			char c = mBuf.charAt(i);
+			if (c == '\n' || c == '\r') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/* finds "<TKN>" or "<TKN ...>", but not "<TKNHeader>" etc. */
+	private int indexOfTokenStart(int from) throws IOException {
+		while (true) {
+			int i = mBuf.indexOf(TKN_OPEN, from);
+			while (i >= 0 && i + TKN_OPEN.length() < mBuf.length()) {
+				char c = mBuf.charAt(i + TKN_OPEN.length());
+				if (c == '>' || Character.isWhitespace(c)) {
+					return i;
+				}
+				i = mBuf.indexOf(TKN_OPEN, i + 1);
+			}
+			// not found, or found right at the end of the buffer: read more
+			from = Math.max(from, mBuf.length() - TKN_OPEN.length());
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	private int indexOfOrFill(String s, int from) throws IOException {
+		while (true) {
+			int i = mBuf.indexOf(s, from);
+			if (i >= 0) {
+				return i;
+			}
+			from = Math.max(from, mBuf.length() - s.length());
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	private String nextXml() throws IOException {
+		if (mPrefix == null) {
+			int start = indexOfTokenStart(0);
+			if (start < 0) {
+				// no <TKN> at all; let the token parser report the error
+				mPrefix = "";
+				return drain();
+			}
+			mPrefix = mBuf.substring(0, start);
+			mBuf.delete(0, start);
+		}
+
+		int start = indexOfTokenStart(0);
+		if (start < 0) {
+			mBuf.setLength(0);
+			return null;
+		}
+		int end = indexOfOrFill(TKN_CLOSE, start);
+		if (end < 0) {
+			throw new IOException("unterminated <TKN> element");
+		}
+		end += TKN_CLOSE.length();
+
+		// include anything up to the next token (typically whitespace or <TKNTrailer>)
+		int next = indexOfTokenStart(end);
+		int batchEnd = mBuf.indexOf(BATCH_CLOSE, end);
+		if (next < 0 || (batchEnd >= 0 && batchEnd < next)) {
+			next = (batchEnd >= 0) ? batchEnd : mBuf.length();
+		}
+
+		StringBuilder sb = new StringBuilder(mPrefix.length() + next + BATCH_CLOSE.length() + 1);
+		sb.append(mPrefix);
+		sb.append(mBuf, 0, next);
+		sb.append(BATCH_CLOSE).append('\n');
+		mBuf.delete(0, next);
+
+		if (batchEnd >= 0 && batchEnd == next) {
+			// nothing after </TKNBatch> is of interest
+			mBuf.setLength(0);
+			mEof = true;
+		}
+		return sb.toString();
+	}
+
+	private String drain() throws IOException {
+		while (fill()) {
+			// keep reading
+		}
+		String s = mBuf.toString();
+		mBuf.setLength(0);
+		return s.trim().isEmpty() ? null : s;
+	}
+}
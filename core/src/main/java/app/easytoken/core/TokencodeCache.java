@@ -0,0 +1,204 @@
+/*
+ * TokencodeCache: per-interval cache of current and next tokencodes
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * Each token keeps the codes for the current interval, the next one, and the one
+ * after that.  When the clock crosses an interval boundary the window just slides
+ * over, and the newly exposed code is computed in the background, so a lookup is
+ * normally a hash lookup plus a little arithmetic.  Only the very first lookup for
+ * a token (or one after a long idle period) pays for computeTokenCode().
+ */
+public class TokencodeCache {
+
+	public static class Code {
+		public String serial;
+		public String code;
+		public String nextCode;
+		public int secondsLeft;
+		public int interval;
+
+		/* true if the token needs a PIN that hasn't been saved; no codes are returned */
+		public boolean pinMissing;
+	}
+
+	private static class Entry {
+		SecurIdToken token;
+		String pin;
+		int interval;
+		boolean pinMissing;
+
+		/* start of the interval that codes[0] belongs to, in seconds */
+		long start = -1;
+		final String codes[] = new String[3];
+		boolean refilling;
+	}
+
+	private final TokenStore mStore;
+	private final TokenClock mClock;
+	/* shared by all caches; one idle daemon thread is all it ever costs */
+	private static final ExecutorService sRefiller = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "TokencodeCache");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	private final HashMap<String, Entry> mEntries = new HashMap<>();
+	private long mLoadedAt = -1;
+
+	public TokencodeCache(TokenStore store, TokenClock clock) {
+		mStore = store;
+		mClock = clock;
+	}
+
+	/* returns null if there is no such token, or it can't be decoded */
+	public Code get(String serial) {
+		return get(serial, mClock.currentTimeMillis());
+	}
+
+	public Code get(String serial, long nowMs) {
+		Entry e = getEntry(serial);
+		if (e == null) {
+			return null;
+		}
+
+		Code c = new Code();
+		c.serial = serial;
+		c.interval = e.interval;
+		if (e.pinMissing) {
+			c.pinMissing = true;
+			return c;
+		}
+
+		long now = nowMs / 1000;
+		long start = TokenClock.intervalStart(now, e.interval);
+		c.secondsLeft = TokenClock.secondsLeft(now, e.interval);
+
+		synchronized (e) {
+			slide(e, start);
+			c.code = e.codes[0];
+			c.nextCode = e.codes[1];
+		}
+		return c;
+	}
+
+	/* forget everything, e.g. after the store was modified behind our back */
+	public synchronized void clear() {
+		mEntries.clear();
+	}
+
+	private synchronized Entry getEntry(String serial) {
+		long modified = mStore.lastModified();
+		if (mLoadedAt != modified) {
+			// tokens were imported, renamed, deleted or had their PIN changed
+			mEntries.clear();
+			mLoadedAt = modified;
+		}
+
+		Entry e = mEntries.get(serial);
+		if (e == null) {
+			String s = mStore.getTokenString(serial);
+			if (s == null) {
+				return null;
+			}
+			SecurIdToken token;
+			long t0 = System.nanoTime();
+			try {
+				token = SecurIdToken.Companion.importString(s, false);
+				token.decryptSeed("", "");
+			} catch (Exception exc) {
+				return null;
+			}
+			PerfCounters.recordSince(PerfCounters.TOKEN_DECODE, t0);
+
+			String pin = mStore.getPin(serial);
+			boolean havePin = pin != null && !pin.equals("");
+			e = new Entry();
+			e.token = token;
+			e.pin = havePin ? pin : "0000";
+			e.pinMissing = token.pinRequired() && !havePin;
+			e.interval = token.tokenInterval();
+			mEntries.put(serial, e);
+		}
+		return e;
+	}
+
+	/* call with E locked */
+	private void slide(final Entry e, long start) {
+		long shift = (e.start < 0) ? 3 : (start - e.start) / e.interval;
+		if (shift == 0) {
+			PerfCounters.increment(PerfCounters.CACHE_HIT);
+			return;
+		}
+
+		if (shift > 0 && shift < 3) {
+			int n = (int)shift;
+			for (int i = 0; i < 3; i++) {
+				e.codes[i] = (i + n < 3) ? e.codes[i + n] : null;
+			}
+		} else {
+			// first use, a long gap, or the clock went backwards
+			e.codes[0] = e.codes[1] = e.codes[2] = null;
+		}
+		e.start = start;
+
+		// the caller needs these two right now
+		boolean hit = true;
+		for (int i = 0; i < 2; i++) {
+			if (e.codes[i] == null) {
+				e.codes[i] = compute(e, start + i * e.interval);
+				hit = false;
+			}
+		}
+		PerfCounters.increment(hit ? PerfCounters.CACHE_HIT : PerfCounters.CACHE_MISS);
+
+		// ...and the third one can wait
+		if (e.codes[2] == null && !e.refilling) {
+			e.refilling = true;
+			final long t = start + 2 * e.interval;
+			sRefiller.execute(new Runnable() {
+				@Override
+				public void run() {
+					String code = compute(e, t);
+					synchronized (e) {
+						e.refilling = false;
+						if (e.start + 2 * e.interval == t) {
+							e.codes[2] = code;
+						}
+					}
+				}
+			});
+		}
+	}
+
+	private static String compute(Entry e, long t) {
+		PerfCounters.increment(PerfCounters.TOKENCODE_COMPUTE);
+		synchronized (e.token) {
+			return e.token.computeTokenCode(t, e.pin);
+		}
+	}
+}
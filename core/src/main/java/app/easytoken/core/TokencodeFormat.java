@@ -0,0 +1,41 @@
+/*
+ * TokencodeFormat: display formatting for tokencodes
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+public class TokencodeFormat {
+
+	/* "12345678" -> "1234 5678" */
+	public static String format(String s) {
+		int midpoint = s.length() / 2;
+		return s.substring(0, midpoint) + " " + s.substring(midpoint);
+	}
+
+	/* ...into a caller-supplied buffer, so per-second updates needn't allocate; returns the length */
+	public static int format(CharSequence s, char out[]) {
+		int len = s.length();
+		int midpoint = len / 2;
+		int j = 0;
+		for (int i = 0; i < len; i++) {
+			if (i == midpoint) {
+				out[j++] = ' ';
+			}
+			out[j++] = s.charAt(i);
+		}
+		return j;
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * TokencodeVerifier: checks observed tokencodes and tracks per-token clock drift
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.util.HashMap;
+
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * Stands in for the authentication server in test setups.  A code is accepted
+ * if it belongs to any interval within +/- WINDOW of the token's expected
+ * interval, which is "now" shifted by the drift seen on its last successful
+ * verification; like the real server, this follows a token whose clock slowly
+ * wanders off.
+ *
+ * Each token keeps every code in its window in a ring (indexed by interval
+ * number) plus a code -> interval map, so a verification is one hash lookup.
+ * When the window moves, only the intervals that came into view are computed:
+ * one computeTokenCode() per token per interval in steady state, instead of
+ * 2 * WINDOW + 1 per verification.
+ */
+public class TokencodeVerifier {
+
+	public static final int OK = 0;
+	public static final int NO_MATCH = 1;
+	public static final int UNKNOWN_TOKEN = 2;
+	public static final int PIN_REQUIRED = 3;
+
+	public static final String VERIFY_OK = "verify.ok";
+	public static final String VERIFY_FAIL = "verify.fail";
+
+	public static class Result {
+		public int status;
+
+		/* for OK: matched interval relative to the current one, e.g. -1 = previous code */
+		public int offset;
+
+		/* drift (in intervals) to be applied to the next verification of this token */
+		public int drift;
+	}
+
+	private static class Index {
+		SecurIdToken token;
+		String pin;
+		int interval;
+
+		/* interval number (unix time / interval) at the middle of the window */
+		long center;
+		boolean built;
+
+		/* ring[floorMod(n, size)] holds the code of interval number n */
+		String ring[];
+		final HashMap<String, Long> byCode = new HashMap<>();
+	}
+
+	private final TokenStore mStore;
+	private final TokenClock mClock;
+	private final int mWindow;
+	private final HashMap<String, Index> mIndexes = new HashMap<>();
+	/* kept across store reloads */
+	private final HashMap<String, Integer> mDrift = new HashMap<>();
+	private long mLoadedAt = -1;
+
+	/* WINDOW: how many intervals either side of the expected one are accepted */
+	public TokencodeVerifier(TokenStore store, TokenClock clock, int window) {
+		mStore = store;
+		mClock = clock;
+		mWindow = window;
+	}
+
+	public Result verify(String serial, String code, String pin) {
+		return verify(serial, code, pin, mClock.currentTimeMillis());
+	}
+
+	/* PIN may be null to use the stored one */
+	public Result verify(String serial, String code, String pin, long nowMs) {
+		Result r = new Result();
+		Index idx = getIndex(serial);
+		if (idx == null) {
+			r.status = UNKNOWN_TOKEN;
+			return r;
+		}
+
+		if (pin == null || pin.isEmpty()) {
+			pin = mStore.getPin(serial);
+		}
+		if (pin == null || pin.isEmpty()) {
+			if (idx.token.pinRequired()) {
+				r.status = PIN_REQUIRED;
+				return r;
+			}
+			pin = "0000";
+		}
+
+		long now = Math.floorDiv(nowMs / 1000, (long)idx.interval);
+		synchronized (idx) {
+			int drift = getDrift(serial);
+			slide(idx, now + drift, pin);
+
+			Long n = idx.byCode.get(code);
+			if (n == null) {
+				PerfCounters.increment(VERIFY_FAIL);
+				r.status = NO_MATCH;
+				r.drift = drift;
+				return r;
+			}
+
+			PerfCounters.increment(VERIFY_OK);
+			r.status = OK;
+			r.offset = (int)(n - now);
+			r.drift = r.offset;
+			setDrift(serial, r.offset);
+		}
+		return r;
+	}
+
+	public synchronized int getDrift(String serial) {
+		Integer d = mDrift.get(serial);
+		return d == null ? 0 : d;
+	}
+
+	public synchronized void resetDrift(String serial) {
+		mDrift.remove(serial);
+	}
+
+	private synchronized void setDrift(String serial, int drift) {
+		mDrift.put(serial, drift);
+	}
+
+	private synchronized Index getIndex(String serial) {
+		long modified = mStore.lastModified();
+		if (mLoadedAt != modified) {
+			mIndexes.clear();
+			mLoadedAt = modified;
+		}
+
+		Index idx = mIndexes.get(serial);
+		if (idx == null) {
+			String s = mStore.getTokenString(serial);
+			if (s == null) {
+				return null;
+			}
+			idx = new Index();
+			try {
+				idx.token = SecurIdToken.Companion.importString(s, false);
+				idx.token.decryptSeed("", "");
+			} catch (Exception e) {
+				return null;
+			}
+			idx.interval = idx.token.tokenInterval();
+			idx.ring = new String[2 * mWindow + 1];
+			mIndexes.put(serial, idx);
+		}
+		return idx;
+	}
+
+	/* call with IDX locked; brings the window to CENTER for PIN */
+	private void slide(Index idx, long center, String pin) {
+		if (!pin.equals(idx.pin)) {
+			// a different PIN means different codes throughout
+			idx.pin = pin;
+			idx.built = false;
+		}
+		if (idx.built && center == idx.center) {
+			return;
+		}
+
+		long lo = center - mWindow, hi = center + mWindow;
+		long oldLo = idx.center - mWindow, oldHi = idx.center + mWindow;
+		if (!idx.built) {
+			idx.byCode.clear();
+			oldLo = Long.MAX_VALUE;
+			oldHi = Long.MIN_VALUE;
+		}
+
+		for (long n = lo; n <= hi; n++) {
+			if (n >= oldLo && n <= oldHi) {
+				continue;
+			}
+			int slot = (int)Math.floorMod(n, (long)idx.ring.length);
+			String old = idx.ring[slot];
+			if (old != null) {
+				// only if it wasn't shadowed by a later interval with the same code
+				Long prev = idx.byCode.get(old);
+				if (prev != null && Math.floorMod(prev, (long)idx.ring.length) == slot) {
+					idx.byCode.remove(old);
+				}
+			}
+
+			PerfCounters.increment(PerfCounters.TOKENCODE_COMPUTE);
+			String code = idx.token.computeTokenCode(n * idx.interval, pin);
+			idx.ring[slot] = code;
+			idx.byCode.put(code, n);
+		}
+
+		idx.center = center;
+		idx.built = true;
+	}
+}
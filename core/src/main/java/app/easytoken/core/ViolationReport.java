@@ -0,0 +1,233 @@
+/*
+ * ViolationReport: policy violations aggregated by call site
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Collects policy violations (StrictMode on Android, plus the checks below that
+ * StrictMode can't do) and folds repeats together, so a tick that reads a
+ * preference every second shows up as one line with a large count rather than
+ * as a wall of log spam.
+ *
+ * Disabled by default; every entry point is a single field test until
+ * setEnabled(true).
+ */
+public class ViolationReport {
+
+	/* types reported from here; StrictMode types use the violation's class name */
+	public static final String MAIN_THREAD_CRYPTO = "MainThreadCrypto";
+	public static final String SLOW_CALL = "SlowCall";
+
+	/* frames from these packages are never blamed */
+	private static final String[] IGNORED_PREFIXES = {
+		"java.", "javax.", "sun.", "dalvik.", "libcore.", "android.", "androidx.",
+		"com.android.", "kotlin.", ViolationReport.class.getName()
+	};
+
+	public static class Entry {
+		public final String type;
+		public final String site;
+		public final String detail;
+		public final StackTraceElement[] stack;
+		/* index of SITE in STACK */
+		public final int siteIndex;
+		public long count;
+		public long firstMs;
+		public long lastMs;
+
+		Entry(String type, int siteIndex, String detail, StackTraceElement[] stack, long now) {
+			this.type = type;
+			this.site = frame(stack, siteIndex);
+			this.siteIndex = siteIndex;
+			this.detail = detail;
+			this.stack = stack;
+			this.firstMs = now;
+			this.lastMs = now;
+		}
+	}
+
+	private static volatile boolean sEnabled;
+	private static volatile Thread sMainThread;
+	private static volatile long sSlowCallNs = 16 * 1000000L;
+	private static final ConcurrentHashMap<String, Entry> sEntries = new ConcurrentHashMap<>();
+
+	public static void setEnabled(boolean val) {
+		sEnabled = val;
+	}
+
+	public static boolean isEnabled() {
+		return sEnabled;
+	}
+
+	/* the thread that must not do crypto or slow calls */
+	public static void setMainThread(Thread t) {
+		sMainThread = t;
+	}
+
+	public static void setSlowCallThresholdMs(long ms) {
+		sSlowCallNs = ms * 1000000L;
+	}
+
+	/* index of the first frame outside the platform and this class; 0 if there is none */
+	private static int callSiteIndex(StackTraceElement[] stack) {
+		for (int i = 0; i < stack.length; i++) {
+			String cls = stack[i].getClassName();
+			boolean ignored = false;
+			for (String pfx : IGNORED_PREFIXES) {
+				if (cls.startsWith(pfx)) {
+					ignored = true;
+					break;
+				}
+			}
+			if (!ignored) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	/* e.g. "app.easytoken.Misc.readStringFromUri(Misc.java:52)" */
+	private static String frame(StackTraceElement[] stack, int i) {
+		return i < stack.length ? stack[i].toString() : "unknown";
+	}
+
+	public static void record(String type, String detail, StackTraceElement[] stack) {
+		if (!sEnabled) {
+			return;
+		}
+		int siteIndex = callSiteIndex(stack);
+		String key = type + " @ " + frame(stack, siteIndex);
+		long now = System.currentTimeMillis();
+
+		Entry e = sEntries.get(key);
+		if (e == null) {
+			Entry n = new Entry(type, siteIndex, detail, stack, now);
+			e = sEntries.putIfAbsent(key, n);
+			if (e == null) {
+				e = n;
+			}
+		}
+		synchronized (e) {
+			e.count++;
+			e.lastMs = now;
+		}
+	}
+
+	public static void record(String type, Throwable t) {
+		record(type, t.getMessage(), t.getStackTrace());
+	}
+
+	private static boolean onMainThread() {
+		return sEnabled && Thread.currentThread() == sMainThread;
+	}
+
+	/* call right before decrypting a seed or computing a tokencode */
+	public static void noteCrypto(String name) {
+		if (onMainThread()) {
+			record(MAIN_THREAD_CRYPTO, name, new Throwable().getStackTrace());
+		}
+	}
+
+	/* call after a potentially slow operation started at System.nanoTime() == STARTNS */
+	public static void noteSlowCall(String name, long startNs) {
+		if (!onMainThread()) {
+			return;
+		}
+		long ns = System.nanoTime() - startNs;
+		if (ns >= sSlowCallNs) {
+			record(SLOW_CALL, name + " took " + (ns / 1000000) + " ms", new Throwable().getStackTrace());
+		}
+	}
+
+	public static void reset() {
+		sEntries.clear();
+	}
+
+	/* most frequent first */
+	public static List<Entry> getEntries() {
+		List<Entry> ret = new ArrayList<>(sEntries.values());
+		Collections.sort(ret, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry a, Entry b) {
+				return Long.compare(b.count, a.count);
+			}
+		});
+		return ret;
+	}
+
+	private static void jsonString(StringBuilder sb, String s) {
+		sb.append('"');
+		for (int i = 0; s != null && i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	public static String toJson() {
+		StringBuilder sb = new StringBuilder("[\n");
+		boolean first = true;
+		for (Entry e : getEntries()) {
+			if (!first) {
+				sb.append(",\n");
+			}
+			first = false;
+			sb.append("  {\"type\": ");
+			jsonString(sb, e.type);
+			sb.append(", \"site\": ");
+			jsonString(sb, e.site);
+			sb.append(", \"detail\": ");
+			jsonString(sb, e.detail);
+			sb.append(", \"count\": ").append(e.count);
+			sb.append(", \"first_ms\": ").append(e.firstMs);
+			sb.append(", \"last_ms\": ").append(e.lastMs).append('}');
+		}
+		return sb.append("\n]\n").toString();
+	}
+
+	/* the call site and the frames above it, skipping the StrictMode/libcore frames below */
+	public static void dump(PrintWriter pw) {
+		for (Entry e : getEntries()) {
+			pw.print(e.count);
+			pw.print("x ");
+			pw.print(e.type);
+			pw.print(" @ ");
+			pw.println(e.site);
+			if (e.detail != null) {
+				pw.print("    ");
+				pw.println(e.detail);
+			}
+			for (int i = e.siteIndex; i < e.stack.length && i < e.siteIndex + 8; i++) {
+				pw.print("    at ");
+				pw.println(e.stack[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * CodeTableTest: checks generated code tables against computeTokenCode()
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ * The layout tests run CodeTableWriter against a stand-in token with a known
+ * code for every interval.  The real-token tests check whole tables against
+ * computeTokenCode(); see TestTokens.
+ */
+public class CodeTableTest {
+
+	/* a few chunks plus a partial one, so the pool splits the work */
+	private static final int COUNT = 3 * CodeTableWriter.CHUNK + 123;
+	private static final long FROM = 1700000000L;
+
+	@Rule
+	public TemporaryFolder mTmp = new TemporaryFolder();
+
+	/* eight digits that differ from interval to interval and are stable within one */
+	private static class FakeWriter extends CodeTableWriter {
+		final int interval;
+		final boolean needsPin;
+
+		FakeWriter(int interval, boolean needsPin, String pin) {
+			super(null, pin);
+			this.interval = interval;
+			this.needsPin = needsPin;
+		}
+
+		@Override
+		int tokenInterval() {
+			return interval;
+		}
+
+		@Override
+		String tokenSerial() {
+			return "000123456789";
+		}
+
+		@Override
+		boolean pinRequired() {
+			return needsPin;
+		}
+
+		@Override
+		String computeTokenCode(long t) {
+			long n = Math.floorDiv(t, (long)interval);
+			return String.format("%08d", Math.floorMod(n * 2654435761L, 100000000L));
+		}
+	}
+
+	/* writes FROM plus COUNT intervals on four threads and checks every entry */
+	private void checkEveryEntry(CodeTableWriter w, int interval, String serial) throws Exception {
+		w.setThreads(4);
+		File out = new File(mTmp.getRoot(), "every.ctab");
+		w.write(out, FROM, FROM + (long)(COUNT - 1) * interval);
+		assertFalse(new File(out.getPath() + ".tmp").exists());
+
+		try (CodeTable table = CodeTable.open(out)) {
+			long first = Math.floorDiv(FROM, (long)interval) * interval;
+			assertEquals(serial, table.getSerial());
+			assertEquals(interval, table.getInterval());
+			assertEquals(first, table.getStart());
+			assertEquals(first + (long)COUNT * interval, table.getEnd());
+
+			for (long t = table.getStart(); t < table.getEnd(); t += interval) {
+				String code = w.computeTokenCode(t);
+				assertEquals("t=" + t, code, table.get(t));
+				assertEquals("t=" + t, Integer.parseInt(code), table.getInt(t));
+				// any second within the interval maps to the same entry
+				assertEquals("t=" + t, code, table.get(t + interval - 1));
+			}
+		}
+	}
+
+	@Test
+	public void every30SecondEntryIsPlaced() throws Exception {
+		checkEveryEntry(new FakeWriter(30, false, null), 30, "000123456789");
+	}
+
+	@Test
+	public void every60SecondEntryIsPlaced() throws Exception {
+		checkEveryEntry(new FakeWriter(60, false, null), 60, "000123456789");
+	}
+
+	@Test
+	public void outOfRange() throws Exception {
+		File out = new File(mTmp.getRoot(), "range.ctab");
+		new FakeWriter(30, false, null).write(out, FROM, FROM + 3600);
+
+		try (CodeTable table = CodeTable.open(out)) {
+			assertEquals(-1, table.getInt(table.getStart() - 1));
+			assertNull(table.get(table.getStart() - 1));
+			assertEquals(-1, table.getInt(table.getEnd()));
+			assertNull(table.get(table.getEnd()));
+			assertEquals(-1, table.getInt(Long.MIN_VALUE));
+			assertNull(table.get(Long.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void missingPinIsRefused() throws Exception {
+		File out = new File(mTmp.getRoot(), "pin.ctab");
+		try {
+			new FakeWriter(30, true, null).write(out, FROM, FROM + 3600);
+			fail("wrote a table without the PIN");
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(out.exists());
+
+		new FakeWriter(30, true, "1234").write(out, FROM, FROM + 3600);
+		assertTrue(out.exists());
+	}
+
+	@Test
+	public void rewriteReplacesWholeTable() throws Exception {
+		FakeWriter w = new FakeWriter(60, false, null);
+		File out = new File(mTmp.getRoot(), "rewrite.ctab");
+
+		w.write(out, FROM, FROM + 100L * 60);
+		long later = FROM + 1000L * 60;
+		w.write(out, later, later + 10L * 60);
+
+		try (CodeTable table = CodeTable.open(out)) {
+			assertEquals(Math.floorDiv(later, 60L) * 60, table.getStart());
+			assertNull(table.get(FROM));
+			assertEquals(w.computeTokenCode(later), table.get(later));
+		}
+		assertEquals(0, w.verify(out, 16));
+	}
+
+	/* real tokens: the same checks against SecurIdToken.computeTokenCode() */
+
+	private void checkRealToken(String name, int interval) throws Exception {
+		TestTokens tt = TestTokens.load(name);
+		assertEquals(interval, tt.token.tokenInterval());
+
+		CodeTableWriter w = new CodeTableWriter(tt.tokenString, tt.pin);
+		checkEveryEntry(w, interval, tt.token.getSerial());
+
+		// and straight from the token, not through the writer
+		try (CodeTable table = CodeTable.open(new File(mTmp.getRoot(), "every.ctab"))) {
+			for (long t = table.getStart(); t < table.getEnd(); t += interval) {
+				assertEquals("t=" + t, tt.token.computeTokenCode(t, tt.codePin()), table.get(t));
+			}
+		}
+	}
+
+	@Test
+	public void real30SecondToken() throws Exception {
+		checkRealToken("30s", 30);
+	}
+
+	@Test
+	public void real60SecondToken() throws Exception {
+		checkRealToken("v2", 60);
+	}
+
+	@Test
+	public void realTokenMissingPinIsRefused() throws Exception {
+		TestTokens tt = TestTokens.load("v2-pin");
+		assertTrue(tt.token.pinRequired());
+
+		File out = new File(mTmp.getRoot(), "pin.ctab");
+		try {
+			new CodeTableWriter(tt.tokenString, null).write(out, FROM, FROM + 3600);
+			fail("wrote a table without the PIN");
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(out.exists());
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * TokencodeCacheTest: cache invalidation when a load races a store write
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TokencodeCacheTest {
+
+	private static final String SERIAL = "000123456789";
+
+	/*
+	 * One serial whose token string can be swapped.  Like TokenInfo, a write
+	 * stores the new data first and bumps the stamp after.  If PAUSE is set, the
+	 * next load stops in getPin() (after it has read the stamp and the token
+	 * string) until RESUME is counted down.
+	 */
+	private static class SteppedStore implements TokenStore {
+		volatile String tokenString;
+		volatile long stamp;
+		volatile CountDownLatch paused, resume;
+
+		void write(String s) {
+			tokenString = s;
+			stamp++;
+		}
+
+		@Override
+		public Set<String> getSerials() {
+			return Collections.singleton(SERIAL);
+		}
+
+		@Override
+		public String getTokenString(String serial) {
+			return tokenString;
+		}
+
+		@Override
+		public String getPin(String serial) {
+			CountDownLatch r = resume;
+			if (r != null) {
+				resume = null;
+				paused.countDown();
+				try {
+					r.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public String getName(String serial) {
+			return SERIAL;
+		}
+
+		@Override
+		public long lastModified() {
+			return stamp;
+		}
+	}
+
+	/* a lookup between a write's data and its stamp, as in TokenInfo.save() */
+	@Test
+	public void readerInsideAWriteSeesItOnceStamped() throws Exception {
+		TestTokens t30 = TestTokens.load("30s");
+		TestTokens t60 = TestTokens.load("v2");
+
+		SteppedStore store = new SteppedStore();
+		store.write(t30.tokenString);
+		TokencodeCache cache = new TokencodeCache(store, TokenClock.fixed(1700000000000L));
+		assertEquals(30, cache.get(SERIAL).interval);
+
+		store.tokenString = t60.tokenString;
+		// not stamped yet, so the cached entry is still considered current
+		assertEquals(30, cache.get(SERIAL).interval);
+		store.stamp++;
+		assertEquals(60, cache.get(SERIAL).interval);
+	}
+
+	/* a load that has read the stamp and data when a write lands */
+	@Test
+	public void loadRacingAWriteIsRedone() throws Exception {
+		// two tokens that are easy to tell apart by their interval
+		TestTokens t30 = TestTokens.load("30s");
+		TestTokens t60 = TestTokens.load("v2");
+
+		final SteppedStore store = new SteppedStore();
+		store.write(t30.tokenString);
+		final TokencodeCache cache = new TokencodeCache(store, TokenClock.fixed(1700000000000L));
+
+		store.paused = new CountDownLatch(1);
+		CountDownLatch resume = new CountDownLatch(1);
+		store.resume = resume;
+
+		final AtomicReference<TokencodeCache.Code> first = new AtomicReference<>();
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				first.set(cache.get(SERIAL));
+			}
+		});
+		reader.start();
+
+		// the reader has the old stamp and the old token string; now write
+		assertTrue(store.paused.await(10, TimeUnit.SECONDS));
+		store.write(t60.tokenString);
+		resume.countDown();
+		reader.join(10000);
+
+		// the racing load finished with what it had read...
+		assertEquals(30, first.get().interval);
+		// ...but the next lookup must not keep serving it
+		assertEquals(60, cache.get(SERIAL).interval);
+		assertEquals(60, cache.get(SERIAL).interval);
+	}
+}
@@ -0,0 +1,146 @@
+package app.easytoken.qrscan
+
+import android.os.SystemClock
+import android.util.Log
+import androidx.camera.core.ImageAnalysis
+import androidx.camera.core.ImageProxy
+import com.google.mlkit.vision.barcode.BarcodeScanner
+import com.google.mlkit.vision.barcode.common.Barcode
+import com.google.mlkit.vision.common.InputImage
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/*
+ * Frames arrive on the camera executor.  Only the luma plane of a centered
+ * region of interest is copied out, so the ImageProxy can be closed right away
+ * and CameraX is never starved of buffers.  At most one detection runs at a
+ * time; frames that arrive while ML Kit is busy are counted and dropped.
+ *
+ * onResult is called on the main thread, once per distinct value.
+ */
+class QRCodeAnalyzer(private val scanner: BarcodeScanner,
+                     private val onResult: (String) -> Unit) : ImageAnalysis.Analyzer {
+    companion object {
+        private const val TAG = "QRImportActivity"
+
+        /* fraction of the shorter image side covered by the (square) region of interest */
+        private const val ROI_FRACTION = 0.75f
+
+        /* NV21 chroma value meaning "no color" */
+        private const val NEUTRAL_CHROMA: Byte = 0x80.toByte()
+    }
+
+    private val inFlight = AtomicBoolean(false)
+    private val stopped = AtomicBoolean(false)
+    private val seen = HashSet<String>()
+
+    /* only touched while inFlight is held */
+    private var nv21: ByteArray? = null
+
+    val framesAnalyzed = AtomicInteger(0)
+    val framesDropped = AtomicInteger(0)
+
+    /* elapsedRealtime() when the first frame arrived, and when the first code was decoded */
+    @Volatile var firstFrameTime = 0L
+        private set
+    @Volatile var firstDecodeTime = 0L
+        private set
+
+    val timeToDecode: Long
+        get() = if (firstDecodeTime == 0L) -1 else firstDecodeTime - firstFrameTime
+
+    override fun analyze(imageProxy: ImageProxy) {
+        try {
+            if (firstFrameTime == 0L) {
+                firstFrameTime = SystemClock.elapsedRealtime()
+            }
+            if (stopped.get() || !inFlight.compareAndSet(false, true)) {
+                framesDropped.incrementAndGet()
+                return
+            }
+
+            try {
+                val image = cropLuma(imageProxy)
+                scanner.process(image)
+                    .addOnSuccessListener { processBarcodes(it) }
+                    .addOnFailureListener { Log.e(TAG, "Barcode failure", it) }
+                    .addOnCompleteListener { inFlight.set(false) }
+                framesAnalyzed.incrementAndGet()
+            } catch (e: Exception) {
+                // an exception here would kill the camera's analysis executor; drop the frame instead
+                Log.w(TAG, "Dropping frame", e)
+                framesDropped.incrementAndGet()
+                inFlight.set(false)
+            }
+        } finally {
+            // the pixels we need were copied out above
+            imageProxy.close()
+        }
+    }
+
+    /* copies the centered ROI of the Y plane into an NV21 buffer with neutral chroma */
+    private fun cropLuma(imageProxy: ImageProxy): InputImage {
+        val plane = imageProxy.planes[0]
+        val rowStride = plane.rowStride
+        val pixelStride = plane.pixelStride
+        val src = plane.buffer
+
+        // NV21 needs even dimensions
+        val side = (minOf(imageProxy.width, imageProxy.height) * ROI_FRACTION).toInt() and 1.inv()
+        val left = ((imageProxy.width - side) / 2) and 1.inv()
+        val top = ((imageProxy.height - side) / 2) and 1.inv()
+
+        val lumaSize = side * side
+        val size = lumaSize + lumaSize / 2
+        var buf = nv21
+        if (buf == null || buf.size != size) {
+            buf = ByteArray(size)
+            buf.fill(NEUTRAL_CHROMA, lumaSize, size)
+            nv21 = buf
+        }
+
+        for (y in 0 until side) {
+            val rowStart = (top + y) * rowStride + left * pixelStride
+            if (pixelStride == 1) {
+                src.position(rowStart)
+                src.get(buf, y * side, side)
+            } else {
+                for (x in 0 until side) {
+                    buf[y * side + x] = src.get(rowStart + x * pixelStride)
+                }
+            }
+        }
+
+        return InputImage.fromByteArray(buf, side, side,
+            imageProxy.imageInfo.rotationDegrees, InputImage.IMAGE_FORMAT_NV21)
+    }
+
+    /* runs on the main thread */
+    private fun processBarcodes(barcodes: List<Barcode>) {
+        for (barcode in barcodes) {
+            val rawValue = barcode.rawValue ?: continue
+            if (stopped.get() || !seen.add(rawValue)) {
+                continue
+            }
+            if (firstDecodeTime == 0L) {
+                firstDecodeTime = SystemClock.elapsedRealtime()
+            }
+            onResult(rawValue)
+        }
+    }
+
+    /* no further results will be delivered */
+    fun stop() {
+        stopped.set(true)
+    }
+
+    fun close() {
+        stop()
+        scanner.close()
+    }
+
+    fun logStats() {
+        Log.d(TAG, "QR frames analyzed: ${framesAnalyzed.get()}, dropped: ${framesDropped.get()}, " +
+                "time to decode: ${timeToDecode}ms")
+    }
+}
@@ -0,0 +1,210 @@
+package app.easytoken.qrscan
+
+import android.content.Context
+import android.content.Intent
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.Color
+import android.graphics.pdf.PdfRenderer
+import android.net.Uri
+import android.os.Bundle
+import android.util.Log
+import android.widget.Button
+import android.widget.TextView
+import android.widget.Toast
+import androidx.appcompat.app.AppCompatActivity
+import app.easytoken.QRResult
+import app.easytoken.R
+import com.google.android.play.core.splitcompat.SplitCompat
+import com.google.mlkit.vision.barcode.BarcodeScanner
+import com.google.mlkit.vision.common.InputImage
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.max
+
+/*
+ * Decodes a token QR code from a picked image (or the first page of a PDF).
+ *
+ * The bitmap is subsampled while it is decoded, so a 12 MP photo never exists
+ * at full resolution.  A few variants (scales and rotations) are then handed to
+ * ML Kit at the same time, each on its own scanner client, and the first one to
+ * yield a barcode wins.  Each variant's bitmap is recycled once its scan
+ * completes, and the decoded bitmap once all of them have.
+ *
+ * Scanners are created on the executor and closed in onDestroy(); both happen
+ * under the scanners lock, and no scanner is created once it has been closed.
+ */
+class QRImageActivity: AppCompatActivity() {
+    companion object {
+        private const val TAG = "QRImportActivity"
+
+        /* longest side of the decoded bitmap; plenty for a QR code filling part of a screenshot */
+        private const val MAX_DECODE_SIDE = 2048
+
+        /* (scale, rotation) pairs to try */
+        private val VARIANTS = arrayOf(
+            Pair(1.0f, 0), Pair(0.5f, 0), Pair(1.0f, 90), Pair(0.25f, 0))
+    }
+
+    private lateinit var executor: ExecutorService
+    /* guards scanners and closed */
+    private val scanners = ArrayList<BarcodeScanner>()
+    private var closed = false
+    private val done = AtomicBoolean(false)
+
+    override fun attachBaseContext(newBase: Context) {
+        super.attachBaseContext(newBase)
+        SplitCompat.installActivity(this)
+    }
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+
+        setContentView(R.layout.fragment_import_progress)
+        findViewById<TextView>(R.id.progress_text).setText(R.string.qr_image_progress)
+        findViewById<Button>(R.id.cancel_button).setOnClickListener { finish() }
+
+        val uri = intent.data
+        if (uri == null) {
+            finish()
+            return
+        }
+
+        executor = Executors.newSingleThreadExecutor()
+        executor.execute {
+            try {
+                val bitmap = loadBitmap(uri)
+                if (bitmap == null) {
+                    runOnUiThread { fail() }
+                } else {
+                    scan(bitmap)
+                }
+            } catch (e: Exception) {
+                Log.w(TAG, "Unable to read image", e)
+                runOnUiThread { fail() }
+            }
+        }
+    }
+
+    override fun onDestroy() {
+        super.onDestroy()
+        done.set(true)
+        if (this::executor.isInitialized) {
+            executor.shutdownNow()
+        }
+        synchronized(scanners) {
+            closed = true
+            for (s in scanners) {
+                s.close()
+            }
+            scanners.clear()
+        }
+    }
+
+    private fun loadBitmap(uri: Uri): Bitmap? {
+        if (contentResolver.getType(uri) == "application/pdf") {
+            return renderPdf(uri)
+        }
+
+        val bounds = BitmapFactory.Options()
+        bounds.inJustDecodeBounds = true
+        contentResolver.openInputStream(uri)?.use { BitmapFactory.decodeStream(it, null, bounds) }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null
+        }
+
+        val opts = BitmapFactory.Options()
+        opts.inSampleSize = sampleSize(max(bounds.outWidth, bounds.outHeight))
+        return contentResolver.openInputStream(uri)?.use { BitmapFactory.decodeStream(it, null, opts) }
+    }
+
+    /* largest power of two that brings SIDE down to MAX_DECODE_SIDE */
+    private fun sampleSize(side: Int): Int {
+        var sample = 1
+        while (side / sample > MAX_DECODE_SIDE) {
+            sample *= 2
+        }
+        return sample
+    }
+
+    private fun renderPdf(uri: Uri): Bitmap? {
+        val pfd = contentResolver.openFileDescriptor(uri, "r") ?: return null
+        PdfRenderer(pfd).use { renderer ->
+            if (renderer.pageCount == 0) {
+                return null
+            }
+            renderer.openPage(0).use { page ->
+                val scale = MAX_DECODE_SIDE.toFloat() / max(page.width, page.height)
+                val bitmap = Bitmap.createBitmap((page.width * scale).toInt(),
+                    (page.height * scale).toInt(), Bitmap.Config.ARGB_8888)
+                // PDF pages are transparent; the scanner wants dark modules on white
+                bitmap.eraseColor(Color.WHITE)
+                page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY)
+                return bitmap
+            }
+        }
+    }
+
+    /* runs on the executor; results are delivered on the main thread */
+    private fun scan(bitmap: Bitmap) {
+        val remaining = AtomicInteger(VARIANTS.size)
+
+        for ((i, variant) in VARIANTS.withIndex()) {
+            val (scale, rotation) = variant
+            val scaled = if (scale == 1.0f || done.get()) bitmap else
+                Bitmap.createScaledBitmap(bitmap, max(1, (bitmap.width * scale).toInt()),
+                    max(1, (bitmap.height * scale).toInt()), true)
+
+            val scanner = synchronized(scanners) {
+                if (closed || done.get()) null else QRWarmup.createScanner(this).also { scanners.add(it) }
+            }
+            if (scanner == null) {
+                // destroyed or already decoded; this variant and the rest never run
+                if (scaled !== bitmap) {
+                    scaled.recycle()
+                }
+                if (remaining.addAndGet(-(VARIANTS.size - i)) == 0) {
+                    bitmap.recycle()
+                }
+                return
+            }
+
+            scanner.process(InputImage.fromBitmap(scaled, rotation))
+                .addOnSuccessListener { barcodes ->
+                    val value = barcodes.firstNotNullOfOrNull { it.rawValue }
+                    if (value != null && done.compareAndSet(false, true)) {
+                        submitResult(value)
+                    }
+                }
+                .addOnCompleteListener {
+                    if (scaled !== bitmap) {
+                        scaled.recycle()
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        bitmap.recycle()
+                        if (!done.get()) {
+                            fail()
+                        }
+                    }
+                }
+        }
+    }
+
+    private fun fail() {
+        if (isFinishing) {
+            return
+        }
+        Toast.makeText(this, R.string.qr_image_not_found, Toast.LENGTH_LONG).show()
+        setResult(RESULT_CANCELED)
+        finish()
+    }
+
+    private fun submitResult(result: String) {
+        val resultIntent = Intent()
+        resultIntent.putExtra(QRResult.EXTRA_QR_RESULT, result)
+        setResult(RESULT_OK, resultIntent)
+        finish()
+    }
+}
@@ -0,0 +1,230 @@
+package app.easytoken.qrscan
+
+import android.Manifest
+import android.content.Context
+import android.content.Intent
+import android.content.pm.PackageManager
+import android.content.res.Configuration
+import android.os.Bundle
+import android.os.SystemClock
+import android.util.Log
+import android.util.Size
+import android.view.View
+import android.widget.Toast
+import androidx.appcompat.app.AppCompatActivity
+import androidx.camera.core.CameraSelector
+import androidx.camera.core.ImageAnalysis
+import androidx.camera.core.Preview
+import androidx.camera.lifecycle.ProcessCameraProvider
+import androidx.camera.view.PreviewView
+import androidx.core.app.ActivityCompat
+import androidx.core.content.ContextCompat
+import app.easytoken.ImportSession
+import app.easytoken.QRBatchResult
+import app.easytoken.QRResult
+import app.easytoken.R
+import app.easytoken.qrscan.databinding.ActivityQrImportBinding
+import com.google.android.play.core.splitcompat.SplitCompat
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+class QRImportActivity: AppCompatActivity() {
+    companion object {
+        private const val REQUEST_CAMERA_PERMISSIONS = 10
+        private const val TAG = "QRImportActivity"
+
+        // A token QR code is dense (a few hundred characters), so it needs more than
+        // the 640x480 default, but anything past 720p just makes decoding slower.
+        private val ANALYSIS_RESOLUTION = Size(1280, 720)
+
+        private const val STATE_BATCH = "app.easytoken.batch"
+        private const val STATE_SERIALS = "app.easytoken.batch_serials"
+    }
+
+    private lateinit var viewBinding: ActivityQrImportBinding
+    private lateinit var cameraExecutor: ExecutorService
+    private lateinit var analyzer: QRCodeAnalyzer
+
+    private var batchMode = false
+
+    /* batch mode: payloads in scan order, and the serials they map to */
+    private val batch = ArrayList<String>()
+    private val batchSerials = ArrayList<String>()
+
+
+    override fun attachBaseContext(newBase: Context) {
+        super.attachBaseContext(newBase)
+        // this module may have been installed after the app process started
+        SplitCompat.installActivity(this)
+    }
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+
+        viewBinding = ActivityQrImportBinding.inflate(layoutInflater)
+        setContentView(viewBinding.root)
+
+        analyzer = QRCodeAnalyzer(QRWarmup.takeScanner(this)) { onBarcode(it) }
+        watchFirstFrame()
+
+        batchMode = intent.getBooleanExtra(QRBatchResult.EXTRA_BATCH, false)
+        if (savedInstanceState != null) {
+            savedInstanceState.getStringArrayList(STATE_BATCH)?.let { batch.addAll(it) }
+            savedInstanceState.getStringArrayList(STATE_SERIALS)?.let { batchSerials.addAll(it) }
+        }
+        if (batchMode) {
+            viewBinding.batchPanel.visibility = View.VISIBLE
+            viewBinding.doneButton.setOnClickListener { submitBatch() }
+            updateCount()
+        }
+
+        if(allPermissionsGranted())
+            startCamera()
+        else
+            ActivityCompat.requestPermissions(
+                this, arrayOf(Manifest.permission.CAMERA),
+                REQUEST_CAMERA_PERMISSIONS
+            )
+        cameraExecutor = Executors.newSingleThreadExecutor()
+    }
+
+    private fun allPermissionsGranted() =
+        ContextCompat.checkSelfPermission(baseContext,
+            Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED
+
+    override fun onSaveInstanceState(outState: Bundle) {
+        super.onSaveInstanceState(outState)
+        outState.putStringArrayList(STATE_BATCH, batch)
+        outState.putStringArrayList(STATE_SERIALS, batchSerials)
+    }
+
+    override fun onDestroy() {
+        super.onDestroy()
+        analyzer.logStats()
+        analyzer.close()
+        cameraExecutor.shutdown()
+    }
+
+    /* logs the time from the user picking the QR method to the first preview frame */
+    private fun watchFirstFrame() {
+        val start = intent.getLongExtra(QRResult.EXTRA_START_TIME, 0)
+        if (start == 0L) {
+            return
+        }
+        val state = viewBinding.cameraView.previewStreamState
+        state.observe(this, object : androidx.lifecycle.Observer<PreviewView.StreamState> {
+            override fun onChanged(s: PreviewView.StreamState?) {
+                if (s == PreviewView.StreamState.STREAMING) {
+                    Log.d(TAG, "Time to first preview frame: ${SystemClock.elapsedRealtime() - start}ms")
+                    state.removeObserver(this)
+                }
+            }
+        })
+    }
+
+    /* the target resolution is expressed in the display's orientation */
+    private fun analysisResolution(): Size {
+        return if (resources.configuration.orientation == Configuration.ORIENTATION_PORTRAIT)
+            Size(ANALYSIS_RESOLUTION.height, ANALYSIS_RESOLUTION.width)
+        else
+            ANALYSIS_RESOLUTION
+    }
+
+    private fun startCamera() {
+        val cameraProviderFuture = QRWarmup.getCameraProvider(this)
+
+        cameraProviderFuture.addListener({
+            val cameraProvider: ProcessCameraProvider = cameraProviderFuture.get()
+
+            val preview = Preview.Builder().build()
+                .also {
+                    it.setSurfaceProvider(viewBinding.cameraView.surfaceProvider)
+                }
+
+            val barcodeAnalyzer = ImageAnalysis.Builder()
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .setTargetResolution(analysisResolution())
+                .build()
+                .also {
+                    it.setAnalyzer(cameraExecutor, analyzer)
+                }
+
+            val cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA
+
+            try {
+                cameraProvider.unbindAll()
+                cameraProvider.bindToLifecycle(this, cameraSelector, preview, barcodeAnalyzer)
+            } catch (exc: Exception){
+                Log.e(TAG, "Use case binding failed", exc)
+            }
+
+        }, ContextCompat.getMainExecutor(this))
+    }
+
+    override fun onRequestPermissionsResult(
+        requestCode: Int,
+        permissions: Array<out String>,
+        grantResults: IntArray
+    ) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults)
+        if(requestCode == REQUEST_CAMERA_PERMISSIONS){
+            if(allPermissionsGranted())
+                startCamera()
+            else {
+                Toast.makeText(this, "Camera permission required", Toast.LENGTH_SHORT).show()
+                finish()
+            }
+        }
+    }
+
+    private fun onBarcode(result: String) {
+        if (!batchMode) {
+            submitResult(result)
+            return
+        }
+
+        // The same token can be printed in several formats, so de-duplicate on the
+        // serial number.  Parsing is cheap but it stays off the main thread anyway.
+        cameraExecutor.execute {
+            // null if it's not a token (e.g. some other QR code on the sheet)
+            val serial = ImportSession.peekSerial(result)
+            if (serial != null) {
+                runOnUiThread { addToBatch(serial, result) }
+            }
+        }
+    }
+
+    private fun addToBatch(serial: String, result: String) {
+        if (isFinishing || batchSerials.contains(serial)) {
+            return
+        }
+        batchSerials.add(serial)
+        batch.add(result)
+        updateCount()
+    }
+
+    private fun updateCount() {
+        viewBinding.scanCount.text = resources.getQuantityString(R.plurals.qr_batch_count,
+            batch.size, batch.size)
+        viewBinding.doneButton.isEnabled = batch.isNotEmpty()
+    }
+
+    private fun submitBatch() {
+        analyzer.stop()
+
+        val resultIntent = Intent()
+        resultIntent.putStringArrayListExtra(QRBatchResult.EXTRA_QR_RESULTS, batch)
+        setResult(RESULT_OK, resultIntent)
+        finish()
+    }
+
+    fun submitResult(result: String){
+        // later frames may decode the same code again; only the first one counts
+        analyzer.stop()
+
+        val resultIntent = Intent()
+        resultIntent.putExtra(QRResult.EXTRA_QR_RESULT, result)
+        setResult(RESULT_OK, resultIntent)
+        finish()
+    }
+}
@@ -0,0 +1,90 @@
+package app.easytoken.qrscan
+
+import android.content.Context
+import android.util.Log
+import androidx.annotation.OptIn
+import androidx.camera.camera2.Camera2Config
+import androidx.camera.core.CameraXConfig
+import androidx.camera.lifecycle.ExperimentalCameraProviderConfiguration
+import androidx.camera.lifecycle.ProcessCameraProvider
+import com.google.common.util.concurrent.ListenableFuture
+import com.google.mlkit.common.MlKit
+import com.google.mlkit.vision.barcode.BarcodeScanner
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions
+import com.google.mlkit.vision.barcode.BarcodeScanning
+import com.google.mlkit.vision.barcode.common.Barcode
+import java.util.concurrent.Executors
+
+/*
+ * CameraX and ML Kit are no longer set up at process start (the Application
+ * doesn't provide a CameraXConfig and MlKitInitProvider is removed from the
+ * manifest), so the widget and token list processes never load them.  Instead
+ * they are brought up here, the first time the QR path might be used.
+ */
+object QRWarmup {
+    private const val TAG = "QRImportActivity"
+
+    private val executor = Executors.newSingleThreadExecutor()
+
+    private var configured = false
+    private var scanner: BarcodeScanner? = null
+
+    /* safe to call repeatedly; the expensive parts run on a background thread */
+    @JvmStatic
+    fun prewarm(context: Context) {
+        val appContext = context.applicationContext
+        executor.execute {
+            try {
+                ensureInitialized(appContext)
+                ProcessCameraProvider.getInstance(appContext)
+                synchronized(this) {
+                    if (scanner == null) {
+                        scanner = newScanner()
+                    }
+                }
+            } catch (e: Exception) {
+                Log.w(TAG, "QR prewarm failed", e)
+            }
+        }
+    }
+
+    @OptIn(markerClass = [ExperimentalCameraProviderConfiguration::class])
+    @Synchronized
+    private fun ensureInitialized(context: Context) {
+        if (configured) {
+            return
+        }
+        ProcessCameraProvider.configureInstance(
+            CameraXConfig.Builder.fromConfig(Camera2Config.defaultConfig())
+                .setMinimumLoggingLevel(Log.ERROR).build())
+        MlKit.initialize(context)
+        configured = true
+    }
+
+    @JvmStatic
+    fun getCameraProvider(context: Context): ListenableFuture<ProcessCameraProvider> {
+        ensureInitialized(context.applicationContext)
+        return ProcessCameraProvider.getInstance(context)
+    }
+
+    /* hands over the prewarmed scanner, if any; the caller owns (and closes) it */
+    @Synchronized
+    fun takeScanner(context: Context): BarcodeScanner {
+        ensureInitialized(context.applicationContext)
+        val s = scanner ?: newScanner()
+        scanner = null
+        return s
+    }
+
+    /* a fresh scanner of our own; the caller closes it */
+    @Synchronized
+    fun createScanner(context: Context): BarcodeScanner {
+        ensureInitialized(context.applicationContext)
+        return newScanner()
+    }
+
+    private fun newScanner() = BarcodeScanning.getClient(
+        BarcodeScannerOptions.Builder()
+            .setBarcodeFormats(Barcode.FORMAT_QR_CODE)
+            .build())
+}
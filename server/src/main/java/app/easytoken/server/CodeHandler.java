@@ -0,0 +1,160 @@
+/*
+ * CodeHandler: serves tokencodes for GET /tokens/{serial}/code
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.server;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import app.easytoken.core.PerfCounters;
+import app.easytoken.core.TokenClock;
+import app.easytoken.core.TokenStore;
+import us.berkovitz.stoken.SecurIdToken;
+
+/*
+ * Codes only change once per interval, so the (code, next code) pair is cached
+ * per token, interval and PIN, and a request in an interval that has already
+ * been asked for costs a map lookup.  Rigs polling "now" for dozens of accounts
+ * therefore compute each code once.  The cache is dropped wholesale when it
+ * gets large, which only happens if clients sweep through many ?at= values.
+ */
+class CodeHandler implements HttpHandler {
+
+	public static final String CACHE_HIT = "server.cache_hit";
+	public static final String CACHE_MISS = "server.cache_miss";
+
+	static final String SUFFIX = "/code";
+	private static final int MAX_CACHED = 16384;
+
+	private static class Token {
+		SecurIdToken token;
+		String pin;
+	}
+
+	/* read-only after the constructor, so no locking */
+	private final HashMap<String, Token> mTokens = new HashMap<>();
+	private final ConcurrentHashMap<String, String[]> mCache = new ConcurrentHashMap<>();
+	private final TokenClock mClock;
+
+	CodeHandler(TokenStore store) {
+		this(store, TokenClock.SYSTEM);
+	}
+
+	CodeHandler(TokenStore store, TokenClock clock) {
+		mClock = clock;
+		for (String serial : store.getSerials()) {
+			Token t = new Token();
+			try {
+				t.token = SecurIdToken.Companion.importString(store.getTokenString(serial), false);
+				t.token.decryptSeed("", "");
+			} catch (Exception e) {
+				System.err.println(serial + ": " + e);
+				continue;
+			}
+			t.pin = store.getPin(serial);
+			mTokens.put(serial, t);
+		}
+	}
+
+	@Override
+	public void handle(HttpExchange ex) throws IOException {
+		long t0 = System.nanoTime();
+		PerfCounters.increment(HttpUtil.REQUESTS);
+		try {
+			if (!"GET".equals(ex.getRequestMethod())) {
+				HttpUtil.sendError(ex, 405, "method not allowed");
+				return;
+			}
+
+			String serial = HttpUtil.tokenSerial(ex.getRequestURI().getPath(), SUFFIX);
+			if (serial == null) {
+				HttpUtil.sendError(ex, 404, "not found");
+				return;
+			}
+			Token t = mTokens.get(serial);
+			if (t == null) {
+				HttpUtil.sendError(ex, 404, "unknown token");
+				return;
+			}
+
+			Map<String, String> q = HttpUtil.parseQuery(ex.getRequestURI().getRawQuery());
+			long at;
+			try {
+				at = q.containsKey("at") ? Long.parseLong(q.get("at")) : mClock.currentTimeSeconds();
+			} catch (NumberFormatException e) {
+				HttpUtil.sendError(ex, 400, "bad 'at' value");
+				return;
+			}
+
+			String pin = q.containsKey("pin") ? q.get("pin") : t.pin;
+			if (pin == null || pin.isEmpty()) {
+				if (t.token.pinRequired()) {
+					HttpUtil.sendError(ex, 409, "token requires a PIN");
+					return;
+				}
+				pin = "0000";
+			}
+
+			int interval = t.token.tokenInterval();
+			long start = TokenClock.intervalStart(at, interval);
+			String codes[] = getCodes(serial, t, start, interval, pin);
+
+			StringBuilder sb = new StringBuilder(160);
+			sb.append("{\"serial\": ");
+			HttpUtil.appendJsonString(sb, serial);
+			sb.append(", \"at\": ").append(at);
+			sb.append(", \"interval\": ").append(interval);
+			sb.append(", \"code\": \"").append(codes[0]);
+			sb.append("\", \"next_code\": \"").append(codes[1]);
+			sb.append("\", \"seconds_left\": ").append(TokenClock.secondsLeft(at, interval));
+			sb.append("}\n");
+			HttpUtil.sendJson(ex, 200, sb.toString());
+		} finally {
+			ex.close();
+			PerfCounters.recordSince(HttpUtil.REQUEST_TIME, t0);
+		}
+	}
+
+	private String[] getCodes(String serial, Token t, long start, int interval, String pin) {
+		String key = serial + '/' + start + '/' + pin;
+		String codes[] = mCache.get(key);
+		if (codes != null) {
+			PerfCounters.increment(CACHE_HIT);
+			return codes;
+		}
+		PerfCounters.increment(CACHE_MISS);
+
+		codes = new String[2];
+		PerfCounters.add(PerfCounters.TOKENCODE_COMPUTE, 2);
+		// SecurIdToken isn't thread-safe
+		synchronized (t.token) {
+			codes[0] = t.token.computeTokenCode(start, pin);
+			codes[1] = t.token.computeTokenCode(start + interval, pin);
+		}
+
+		if (mCache.size() >= MAX_CACHED) {
+			mCache.clear();
+		}
+		mCache.put(key, codes);
+		return codes;
+	}
+}
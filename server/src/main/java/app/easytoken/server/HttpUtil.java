@@ -0,0 +1,102 @@
+/*
+ * HttpUtil: small helpers shared by the request handlers
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import app.easytoken.core.PerfCounters;
+
+class HttpUtil {
+
+	public static final String REQUESTS = "server.requests";
+	public static final String ERRORS = "server.errors";
+	public static final String REQUEST_TIME = "server.request";
+
+	static final String TOKENS = "/tokens/";
+
+	/* "/tokens/{serial}SUFFIX" -> serial, or null if PATH isn't of that form */
+	static String tokenSerial(String path, String suffix) {
+		if (!path.startsWith(TOKENS) || !path.endsWith(suffix)
+				|| path.length() <= TOKENS.length() + suffix.length()) {
+			return null;
+		}
+		return path.substring(TOKENS.length(), path.length() - suffix.length());
+	}
+
+	/* "a=1&b=2" -> {a=1, b=2}; later duplicates win */
+	static Map<String, String> parseQuery(String query) {
+		HashMap<String, String> ret = new HashMap<>();
+		if (query == null) {
+			return ret;
+		}
+		for (String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			String k = eq < 0 ? pair : pair.substring(0, eq);
+			String v = eq < 0 ? "" : pair.substring(eq + 1);
+			try {
+				ret.put(URLDecoder.decode(k, "UTF-8"), URLDecoder.decode(v, "UTF-8"));
+			} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+				// skip malformed escapes
+			}
+		}
+		return ret;
+	}
+
+	static void send(HttpExchange ex, int status, String contentType, String body) throws IOException {
+		byte b[] = body.getBytes(StandardCharsets.UTF_8);
+		ex.getResponseHeaders().set("Content-Type", contentType);
+		ex.sendResponseHeaders(status, b.length);
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(b);
+		}
+	}
+
+	static void sendJson(HttpExchange ex, int status, String body) throws IOException {
+		send(ex, status, "application/json", body);
+	}
+
+	static void sendError(HttpExchange ex, int status, String msg) throws IOException {
+		PerfCounters.increment(ERRORS);
+		StringBuilder sb = new StringBuilder("{\"error\": ");
+		appendJsonString(sb, msg);
+		sendJson(ex, status, sb.append("}\n").toString());
+	}
+
+	static void appendJsonString(StringBuilder sb, String s) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+}
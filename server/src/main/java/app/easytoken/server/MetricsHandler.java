@@ -0,0 +1,65 @@
+/*
+ * MetricsHandler: PerfCounters in the Prometheus text format
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.server;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import app.easytoken.core.PerfCounters;
+
+/*
+ * Every PerfCounters value becomes one untyped sample, with the dots in its
+ * name turned into underscores: "cache.hit" -> "easytoken_cache_hit".  Timers
+ * come out as their _count, _total_ns and _max_ns parts.
+ */
+class MetricsHandler implements HttpHandler {
+
+	private static final String PREFIX = "easytoken_";
+
+	/* Prometheus names are [a-zA-Z0-9_:]; anything else becomes '_' */
+	private static void appendName(StringBuilder sb, String name) {
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+			sb.append(ok ? c : '_');
+		}
+	}
+
+	@Override
+	public void handle(HttpExchange ex) throws IOException {
+		try {
+			if (!"GET".equals(ex.getRequestMethod())) {
+				HttpUtil.sendError(ex, 405, "method not allowed");
+				return;
+			}
+
+			StringBuilder sb = new StringBuilder();
+			for (Map.Entry<String, Long> e : PerfCounters.snapshot().entrySet()) {
+				sb.append(PREFIX);
+				appendName(sb, e.getKey());
+				sb.append(' ').append(e.getValue()).append('\n');
+			}
+			HttpUtil.send(ex, 200, "text/plain; version=0.0.4", sb.toString());
+		} finally {
+			ex.close();
+		}
+	}
+}
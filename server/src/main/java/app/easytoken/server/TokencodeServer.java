@@ -0,0 +1,144 @@
+/*
+ * TokencodeServer: local HTTP tokencode service for test rigs
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import app.easytoken.core.MemoryTokenStore;
+import app.easytoken.core.TokenClock;
+import app.easytoken.core.TokenFileLoader;
+import app.easytoken.core.TokencodeVerifier;
+
+/*
+ * Endpoints:
+ *
+ *   GET /tokens/{serial}/code[?at=<unix seconds>][&pin=<pin>]
+ *     {"serial": ..., "at": ..., "interval": 60, "code": "12345678",
+ *      "next_code": "23456789", "seconds_left": 17}
+ *
+ *   GET|POST /tokens/{serial}/verify?code=<code>[&pin=<pin>]
+ *     {"serial": ..., "valid": true, "offset": 0, "drift": 0}
+ *     Accepts codes within --window intervals of the expected one, and
+ *     tracks each token's clock drift; see TokencodeVerifier.
+ *
+ *   GET /metrics
+ *     PerfCounters in the Prometheus text format.
+ *
+ * Only the loopback interface is bound: anyone who can reach the port can get
+ * codes for every loaded token.
+ */
+public class TokencodeServer {
+
+	private static final int DEFAULT_PORT = 8080;
+	private static final int DEFAULT_THREADS = 4;
+	private static final int DEFAULT_WINDOW = 3;
+
+	private static void usage() {
+		System.err.println("usage: tokencode-server [--port N] [--threads N] [--window N]");
+		System.err.println("                        [--password PASS] [--devid ID] [--pin PIN] FILE...");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		int threads = DEFAULT_THREADS;
+		int window = DEFAULT_WINDOW;
+		String pass = null, devid = null, pin = null;
+		ArrayList<String> files = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String a = args[i];
+				if (a.equals("--port")) {
+					port = Integer.parseInt(args[++i]);
+				} else if (a.equals("--threads")) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (a.equals("--window")) {
+					window = Integer.parseInt(args[++i]);
+				} else if (a.equals("--password")) {
+					pass = args[++i];
+				} else if (a.equals("--devid")) {
+					devid = args[++i];
+				} else if (a.equals("--pin")) {
+					pin = args[++i];
+				} else if (a.startsWith("-")) {
+					usage();
+				} else {
+					files.add(a);
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			usage();
+		}
+		if (files.isEmpty() || threads < 1 || window < 0) {
+			usage();
+		}
+
+		MemoryTokenStore store = new MemoryTokenStore();
+		TokenFileLoader loader = new TokenFileLoader(store, pass, devid, pin);
+		loader.setLog(System.err);
+		for (String f : files) {
+			loader.load(new File(f));
+		}
+		if (store.getSerials().isEmpty()) {
+			System.err.println("no usable tokens");
+			System.exit(1);
+		}
+
+		final HttpServer server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		final ExecutorService pool = Executors.newFixedThreadPool(threads);
+		server.setExecutor(pool);
+		final CodeHandler codes = new CodeHandler(store);
+		final VerifyHandler verify = new VerifyHandler(
+				new TokencodeVerifier(store, TokenClock.SYSTEM, window));
+		server.createContext(HttpUtil.TOKENS, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange ex) throws IOException {
+				if (ex.getRequestURI().getPath().endsWith(VerifyHandler.SUFFIX)) {
+					verify.handle(ex);
+				} else {
+					codes.handle(ex);
+				}
+			}
+		});
+		server.createContext("/metrics", new MetricsHandler());
+
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				server.stop(0);
+				pool.shutdown();
+			}
+		});
+
+		server.start();
+		System.err.println("serving " + store.getSerials().size() + " token(s) on http://"
+				+ server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/");
+	}
+}
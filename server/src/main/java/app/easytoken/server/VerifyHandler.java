@@ -0,0 +1,97 @@
+/*
+ * VerifyHandler: checks codes for GET|POST /tokens/{serial}/verify
+ *
+ * This file is part of Easy Token
+ * Copyright (c) 2026, EasyToken contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+package app.easytoken.server;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import app.easytoken.core.PerfCounters;
+import app.easytoken.core.TokencodeVerifier;
+
+/*
+ * ?code=<observed code>[&pin=<pin>], in the query string for either method.
+ * Spaces in the code are ignored, so "1234 5678" as displayed works too.
+ *
+ *   {"serial": ..., "valid": true, "offset": -1, "drift": -1}
+ *
+ * "offset" is the matched interval relative to the current one; "drift" is
+ * where the next verification of this token will be centered.
+ */
+class VerifyHandler implements HttpHandler {
+
+	static final String SUFFIX = "/verify";
+
+	private final TokencodeVerifier mVerifier;
+
+	VerifyHandler(TokencodeVerifier verifier) {
+		mVerifier = verifier;
+	}
+
+	@Override
+	public void handle(HttpExchange ex) throws IOException {
+		long t0 = System.nanoTime();
+		PerfCounters.increment(HttpUtil.REQUESTS);
+		try {
+			String method = ex.getRequestMethod();
+			if (!"GET".equals(method) && !"POST".equals(method)) {
+				HttpUtil.sendError(ex, 405, "method not allowed");
+				return;
+			}
+
+			String serial = HttpUtil.tokenSerial(ex.getRequestURI().getPath(), SUFFIX);
+			if (serial == null) {
+				HttpUtil.sendError(ex, 404, "not found");
+				return;
+			}
+
+			Map<String, String> q = HttpUtil.parseQuery(ex.getRequestURI().getRawQuery());
+			String code = q.get("code");
+			if (code == null || code.isEmpty()) {
+				HttpUtil.sendError(ex, 400, "missing 'code'");
+				return;
+			}
+
+			TokencodeVerifier.Result r = mVerifier.verify(serial, code.replace(" ", ""), q.get("pin"));
+			if (r.status == TokencodeVerifier.UNKNOWN_TOKEN) {
+				HttpUtil.sendError(ex, 404, "unknown token");
+				return;
+			} else if (r.status == TokencodeVerifier.PIN_REQUIRED) {
+				HttpUtil.sendError(ex, 409, "token requires a PIN");
+				return;
+			}
+
+			boolean valid = r.status == TokencodeVerifier.OK;
+			StringBuilder sb = new StringBuilder(96);
+			sb.append("{\"serial\": ");
+			HttpUtil.appendJsonString(sb, serial);
+			sb.append(", \"valid\": ").append(valid);
+			if (valid) {
+				sb.append(", \"offset\": ").append(r.offset);
+			}
+			sb.append(", \"drift\": ").append(r.drift);
+			sb.append("}\n");
+			HttpUtil.sendJson(ex, 200, sb.toString());
+		} finally {
+			ex.close();
+			PerfCounters.recordSince(HttpUtil.REQUEST_TIME, t0);
+		}
+	}
+}